@@ -6,6 +6,12 @@ CREATE DATABASE IF NOT EXISTS test
 USE rpg;
 
 DROP TABLE IF EXISTS player;
+-- таблицы, которые создают миграции, тоже удаляются - иначе повторное применение миграций упадет
+DROP TABLE IF EXISTS player_changelog;
+DROP TABLE IF EXISTS player_changelog_state;
+DROP TABLE IF EXISTS player_experience_history;
+-- таблица пересоздается с нуля, поэтому при старте приложения миграции схемы должны примениться заново
+DROP TABLE IF EXISTS schema_version;
 
 CREATE TABLE player
 (
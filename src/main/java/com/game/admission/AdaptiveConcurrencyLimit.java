@@ -0,0 +1,72 @@
+package com.game.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение числа одновременно выполняемых запросов, подстраивающееся под задержку (AIMD).
+ *
+ * Запрос, уложившийся в targetLatency, увеличивает лимит на 1/limit (примерно +1 за "окно" запросов),
+ * медленный запрос уменьшает лимит в decreaseFactor раз, но не чаще одного раза за targetLatency -
+ * иначе пачка медленных ответов, начатых при старом лимите, обрушила бы его до минимума.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double decreaseFactor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecrease = new AtomicLong();
+    private volatile double limit;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, double decreaseFactor) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.decreaseFactor = decreaseFactor;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecrease.set(System.nanoTime() - targetLatencyNanos);
+    }
+
+    // занять место; false - лимит исчерпан
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // освободить место и учесть задержку запроса
+    void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos <= targetLatencyNanos) {
+            update(Math.min(maxLimit, limit + 1.0 / limit));
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastDecrease.get();
+        if (now - last >= targetLatencyNanos && lastDecrease.compareAndSet(last, now)) {
+            update(Math.max(minLimit, limit * decreaseFactor));
+        }
+    }
+
+    // лимит меняется редко и приблизительно - гонка двух обновлений не страшна
+    private void update(double value) {
+        limit = value;
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,117 @@
+package com.game.admission;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Контроль допуска запросов к PlayerController.
+ *
+ * Для каждого класса нагрузки (аннотация @Workload) действует свой адаптивный лимит конкурентности,
+ * поэтому волна тяжелых списков упирается в лимит SCAN и не отнимает потоки у чтения по id и записи.
+ * Дополнительно каждый клиент ограничен по частоте тяжелых запросов (token bucket).
+ * Отказ - сразу 503 (лимит конкурентности) или 429 (частота клиента) с заголовком Retry-After.
+ *
+ * Настройки: player.admission.&lt;scan|point|write&gt;.initial-limit / min-limit / max-limit / target-latency-ms,
+ * player.admission.scan.client-rate / client-burst, player.admission.max-clients / sweep-interval-ms.
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor, DisposableBean {
+
+    private static final String STARTED = AdmissionInterceptor.class.getName() + ".started";
+
+    private final Map<WorkloadClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(WorkloadClass.class);
+    private final ClientRateLimiter scanRateLimiter;
+    private final boolean trustForwardedFor;
+
+    @Autowired
+    public AdmissionInterceptor(Environment environment) {
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            String prefix = "player.admission." + workload.name().toLowerCase() + ".";
+            limits.put(workload, new AdaptiveConcurrencyLimit(
+                    environment.getProperty(prefix + "initial-limit", Integer.class, 32),
+                    environment.getProperty(prefix + "min-limit", Integer.class, 1),
+                    environment.getProperty(prefix + "max-limit", Integer.class, 256),
+                    TimeUnit.MILLISECONDS.toNanos(environment.getProperty(prefix + "target-latency-ms", Long.class, 500L)),
+                    0.9));
+        }
+        this.scanRateLimiter = new ClientRateLimiter(
+                environment.getProperty("player.admission.scan.client-rate", Double.class, 50.0),
+                environment.getProperty("player.admission.scan.client-burst", Integer.class, 100),
+                environment.getProperty("player.admission.max-clients", Integer.class, 100000),
+                environment.getProperty("player.admission.sweep-interval-ms", Long.class, 10000L));
+        this.trustForwardedFor = environment.getProperty("player.admission.trust-forwarded-for", Boolean.class, false);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        WorkloadClass workload = WorkloadClass.of(handler);
+        if (workload == null) {
+            return true;
+        }
+
+        if (workload == WorkloadClass.SCAN) {
+            long waitNanos = scanRateLimiter.tryAcquire(clientOf(request), 1);
+            if (waitNanos > 0) {
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+                return false;
+            }
+        }
+
+        if (!limits.get(workload).tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return false;
+        }
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object started = request.getAttribute(STARTED);
+        if (started != null) {
+            request.removeAttribute(STARTED);
+            limits.get(WorkloadClass.of(handler)).release(System.nanoTime() - (Long) started);
+        }
+    }
+
+    // текущий лимит конкурентности класса нагрузки
+    public int getLimit(WorkloadClass workload) {
+        return limits.get(workload).getLimit();
+    }
+
+    public int getInFlight(WorkloadClass workload) {
+        return limits.get(workload).getInFlight();
+    }
+
+    @Override
+    public void destroy() {
+        scanRateLimiter.shutdown();
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isEmpty()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+}
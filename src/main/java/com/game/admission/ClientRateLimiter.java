@@ -0,0 +1,92 @@
+package com.game.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket на клиента без блокировок (алгоритм GCRA).
+ *
+ * Вместо количества токенов хранится одно число - теоретическое время прихода следующего запроса (tat),
+ * и запрос принимается одним CAS: tat сдвигается на стоимость запроса, если не уходит дальше,
+ * чем на размер корзины вперед от текущего времени.
+ *
+ * Корзин не больше maxClients (с точностью до одновременно пришедших новых клиентов). Простаивающие корзины
+ * удаляет фоновый поток раз в sweepIntervalMillis, а при заполнении - сразу, но тоже в фоне, не в запросе.
+ * Пока места нет, новые клиенты делят одну общую корзину: лимит для них строже, но не снимается.
+ */
+class ClientRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxClients;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+    private final AtomicBoolean sweepRequested = new AtomicBoolean();
+    private final ScheduledExecutorService sweeper;
+
+    ClientRateLimiter(double ratePerSecond, int burst, int maxClients, long sweepIntervalMillis) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.maxClients = maxClients;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "client-rate-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Пытается списать cost токенов у клиента.
+     * Возвращает 0, если запрос принят, иначе - через сколько наносекунд стоит повторить.
+     */
+    long tryAcquire(String client, int cost) {
+        long now = System.nanoTime();
+        AtomicLong tat = buckets.get(client);
+        if (tat == null) {
+            if (buckets.size() < maxClients) {
+                tat = buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+            } else {
+                requestSweep();
+                tat = overflow;
+            }
+        }
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + intervalNanos * cost;
+            long ahead = next - now;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    int clients() {
+        return buckets.size();
+    }
+
+    // корзины с tat в прошлом полны - их можно забыть без изменения поведения
+    void sweep() {
+        sweepRequested.set(false);
+        long now = System.nanoTime();
+        buckets.values().removeIf(tat -> tat.get() - now <= 0);
+    }
+
+    // внеочередная очистка в фоне; одна на все запросы, пришедшие до ее начала
+    private void requestSweep() {
+        if (sweepRequested.compareAndSet(false, true)) {
+            sweeper.execute(this::sweep);
+        }
+    }
+
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
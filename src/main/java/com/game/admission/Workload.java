@@ -0,0 +1,16 @@
+package com.game.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Класс нагрузки метода контроллера. Методы без аннотации пропускаются без ограничений.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Workload {
+
+    WorkloadClass value();
+}
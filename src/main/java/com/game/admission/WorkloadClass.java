@@ -0,0 +1,24 @@
+package com.game.admission;
+
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Классы нагрузки на API: по ним раздельно ограничивается конкурентность.
+ */
+public enum WorkloadClass {
+    // списки и подсчеты - могут читать всю таблицу
+    SCAN,
+    // чтение одного игрока или готового индекса
+    POINT,
+    // изменения
+    WRITE;
+
+    // класс нагрузки обработчика запроса по аннотации @Workload; null - не размечен
+    public static WorkloadClass of(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return null;
+        }
+        Workload workload = ((HandlerMethod) handler).getMethodAnnotation(Workload.class);
+        return workload == null ? null : workload.value();
+    }
+}
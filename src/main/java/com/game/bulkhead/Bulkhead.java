@@ -0,0 +1,95 @@
+package com.game.bulkhead;
+
+import com.game.deadline.RequestDeadline;
+import com.game.dto.BulkheadStats;
+import com.game.exceptions.DeadlineExceededException;
+import com.game.exceptions.ServiceOverloadedException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул выполнения одного класса нагрузки: фиксированное число потоков и ограниченная очередь.
+ * Задача, не поместившаяся в очередь или не выполненная за timeout, завершается 503.
+ */
+class Bulkhead {
+
+    private final String name;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+
+    Bulkhead(String name, int threads, int queueCapacity, long timeoutMillis) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Выполняет задачу в пуле и ждет результат. Исключение задачи пробрасывается как есть.
+     * Срок запроса переносится в поток пула; ожидание ограничено и timeout пула, и сроком запроса.
+     */
+    Object call(Callable<Object> task) throws Throwable {
+        long submitted = System.nanoTime();
+        Callable<Object> withDeadline = RequestDeadline.wrap(task);
+        Future<Object> future;
+        try {
+            future = executor.submit(() -> {
+                queueNanos.add(System.nanoTime() - submitted);
+                try {
+                    return withDeadline.call();
+                } finally {
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceOverloadedException("Bulkhead " + name + " is full");
+        }
+
+        long remainingNanos = RequestDeadline.remainingNanos();
+        boolean deadlineFirst = remainingNanos < TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            return future.get(deadlineFirst ? Math.max(0, remainingNanos) : TimeUnit.MILLISECONDS.toNanos(timeoutMillis),
+                    TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            // прерывание задачи: циклы в памяти проверяют его через RequestDeadline.check()
+            future.cancel(true);
+            if (deadlineFirst) {
+                throw new DeadlineExceededException("Request deadline exceeded in bulkhead " + name);
+            }
+            throw new ServiceOverloadedException("Bulkhead " + name + " timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted while waiting for bulkhead " + name);
+        }
+    }
+
+    BulkheadStats stats() {
+        long done = completed.sum();
+        return new BulkheadStats(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                queueCapacity, done, rejected.sum(), timedOut.sum(),
+                done == 0 ? 0.0 : queueNanos.sum() / 1e6 / done);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
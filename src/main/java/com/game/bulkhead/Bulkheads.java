@@ -0,0 +1,81 @@
+package com.game.bulkhead;
+
+import com.game.admission.Workload;
+import com.game.admission.WorkloadClass;
+import com.game.dto.BulkheadStats;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Отдельные пулы выполнения (bulkheads) для классов нагрузки SCAN, POINT и WRITE.
+ *
+ * Методы с аннотацией @Workload выполняются в пуле своего класса (подключается как advisor в WebConfig),
+ * поток контейнера только ждет результат. Каждый пул ограничен по потокам, очереди и времени ожидания,
+ * поэтому медленные списки занимают только свой пул и не поднимают задержку чтения по id и записи.
+ *
+ * Настройки: player.bulkhead.&lt;scan|point|write&gt;.threads / queue / timeout-ms.
+ */
+@Component
+public class Bulkheads implements MethodInterceptor, DisposableBean {
+
+    private static final ThreadLocal<Boolean> INSIDE = new ThreadLocal<>();
+
+    private final Map<WorkloadClass, Bulkhead> bulkheads = new EnumMap<>(WorkloadClass.class);
+
+    @Autowired
+    public Bulkheads(Environment environment) {
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            String name = workload.name().toLowerCase();
+            String prefix = "player.bulkhead." + name + ".";
+            bulkheads.put(workload, new Bulkhead(name,
+                    environment.getProperty(prefix + "threads", Integer.class, 16),
+                    environment.getProperty(prefix + "queue", Integer.class, 128),
+                    environment.getProperty(prefix + "timeout-ms", Long.class, 5000L)));
+        }
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Workload workload = AnnotationUtils.findAnnotation(invocation.getMethod(), Workload.class);
+        if (workload == null || INSIDE.get() != null) {
+            return invocation.proceed();
+        }
+        // атрибуты запроса нужны в потоке пула, например для пометки StaleResponse
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return bulkheads.get(workload.value()).call(() -> {
+            INSIDE.set(Boolean.TRUE);
+            RequestContextHolder.setRequestAttributes(attributes);
+            try {
+                return invocation.proceed();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+                INSIDE.remove();
+            }
+        });
+    }
+
+    public Map<WorkloadClass, BulkheadStats> getStats() {
+        Map<WorkloadClass, BulkheadStats> stats = new EnumMap<>(WorkloadClass.class);
+        bulkheads.forEach((workload, bulkhead) -> stats.put(workload, bulkhead.stats()));
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        bulkheads.values().forEach(Bulkhead::shutdown);
+    }
+}
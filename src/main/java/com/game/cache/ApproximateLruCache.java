@@ -0,0 +1,108 @@
+package com.game.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Потокобезопасный кэш ограниченного размера с приблизительным вытеснением давно не использованных записей.
+ *
+ * Чтение не берет блокировок: значения лежат в ConcurrentHashMap, обращение только отмечает время у записи.
+ * Когда размер превышает maxEntries, вставивший поток удаляет примерно десятую часть записей с самым старым
+ * временем обращения (остальные вставки в это время не ждут и не вытесняют). Поэтому размер может ненадолго
+ * превысить maxEntries на число одновременных вставок, а вытесняются не строго самые старые записи.
+ */
+public class ApproximateLruCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final int trimTo;
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    public ApproximateLruCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.trimTo = maxEntries - Math.max(1, maxEntries / 10);
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value));
+        if (entries.size() > maxEntries) {
+            trim();
+        }
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // удаляет записи с самым старым временем обращения, пока размер не опустится до trimTo
+    private void trim() {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = entries.size() - Math.max(trimTo, 0);
+            if (excess <= 0) {
+                return;
+            }
+            // время копируется в массив: сортировать записи по изменяющемуся полю нельзя
+            long[] times = new long[entries.size()];
+            int count = 0;
+            for (Entry<V> entry : entries.values()) {
+                if (count == times.length) {
+                    break;
+                }
+                times[count++] = entry.lastAccess;
+            }
+            if (count == 0) {
+                return;
+            }
+            Arrays.sort(times, 0, count);
+            long threshold = times[Math.min(excess, count) - 1];
+
+            int removed = 0;
+            for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                if (removed == excess) {
+                    break;
+                }
+                // remove(key, value) не тронет запись, замененную после снимка
+                if (entry.getValue().lastAccess <= threshold && entries.remove(entry.getKey(), entry.getValue())) {
+                    removed++;
+                }
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.game.cache;
+
+import com.game.dto.JsonCacheStats;
+import com.game.entity.Player;
+import com.game.service.PlayerStateListener;
+import com.game.writebehind.PlayerWriteBehind;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Кэш сериализованного JSON игроков: для каждого часто отдаваемого игрока хранится готовый фрагмент
+ * в байтах, который PlayerJsonConverter вставляет в ответ без повторной сериализации.
+ *
+ * Фрагмент хранится вместе с копией полей, из которых он получен, и выдается, только если поля
+ * отдаваемого объекта совпадают с копией - поэтому устаревший объект (например, из кэша страниц или
+ * с наложенными отложенными изменениями) никогда не получит чужой JSON. Запись и удаление игрока
+ * убирают его фрагмент сразу. Количество фрагментов ограничено, вытесняются давно не использованные
+ * (приблизительный LRU без общей блокировки - ApproximateLruCache).
+ */
+@Component
+public class PlayerJsonCache implements PlayerStateListener {
+
+    private static final class CachedJson {
+        final Player source;
+        final byte[] json;
+
+        CachedJson(Player source, byte[] json) {
+            this.source = source;
+            this.json = json;
+        }
+    }
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ApproximateLruCache<Long, CachedJson> fragments;
+
+    @Autowired
+    public PlayerJsonCache(@Value("${player.json-cache.max-entries:100000}") int maxEntries) {
+        this.fragments = new ApproximateLruCache<>(maxEntries);
+    }
+
+    /**
+     * Возвращает JSON игрока из кэша, если он получен из тех же значений полей,
+     * иначе сериализует игрока через serializer и запоминает результат.
+     */
+    public byte[] getJson(Player player, Function<Player, byte[]> serializer) {
+        if (player.getId() == null) {
+            return serializer.apply(player);
+        }
+        CachedJson cached = fragments.get(player.getId());
+        if (cached != null && sameFields(cached.source, player)) {
+            hits.incrementAndGet();
+            return cached.json;
+        }
+
+        misses.incrementAndGet();
+        byte[] json = serializer.apply(player);
+        fragments.put(player.getId(), new CachedJson(snapshot(player), json));
+        return json;
+    }
+
+    public JsonCacheStats getStats() {
+        return new JsonCacheStats(hits.get(), misses.get(), fragments.size());
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        fragments.clear();
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        if (player.getId() != null) {
+            fragments.remove(player.getId());
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        fragments.remove(id);
+    }
+
+    // копия полей, которую не изменит никто снаружи
+    private static Player snapshot(Player player) {
+        Player copy = PlayerWriteBehind.copyOf(player);
+        if (player.getBirthday() != null) {
+            copy.setBirthday(new Date(player.getBirthday().getTime()));
+        }
+        return copy;
+    }
+
+    // совпадают все поля, попадающие в JSON
+    private static boolean sameFields(Player a, Player b) {
+        return Objects.equals(a.getId(), b.getId()) &&
+                Objects.equals(a.getName(), b.getName()) &&
+                Objects.equals(a.getTitle(), b.getTitle()) &&
+                a.getRace() == b.getRace() &&
+                a.getProfession() == b.getProfession() &&
+                Objects.equals(a.getExperience(), b.getExperience()) &&
+                Objects.equals(a.getLevel(), b.getLevel()) &&
+                Objects.equals(a.getUntilNextLevel(), b.getUntilNextLevel()) &&
+                sameTime(a.getBirthday(), b.getBirthday()) &&
+                Objects.equals(a.getBanned(), b.getBanned());
+    }
+
+    // java.sql.Date и Timestamp из Hibernate сравниваются с java.util.Date только по времени
+    private static boolean sameTime(Date a, Date b) {
+        return a == null ? b == null : b != null && a.getTime() == b.getTime();
+    }
+}
@@ -0,0 +1,131 @@
+package com.game.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.game.entity.Player;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Запись ответов с игроками (Player и List<Player>) из готовых JSON-фрагментов PlayerJsonCache:
+ * список собирается как '[' + фрагменты через ',' + ']' прямо в поток ответа.
+ *
+ * Фрагменты сериализуются тем же ObjectWriter, что и остальные ответы, поэтому JSON не отличается
+ * от записанного MappingJackson2HttpMessageConverter. Чтение тел запросов остается за ним:
+ * canRead всегда false, и DispatcherServlet не передает этому конвертеру тела запросов.
+ */
+public class PlayerJsonConverter implements GenericHttpMessageConverter<Object> {
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private final PlayerJsonCache cache;
+    private final ObjectWriter writer;
+
+    public PlayerJsonConverter(PlayerJsonCache cache, ObjectWriter writer) {
+        this.cache = cache;
+        this.writer = writer;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return Collections.singletonList(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return canWrite(clazz, clazz, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isPlayerType(type != null ? type : clazz) &&
+                (mediaType == null || MediaType.APPLICATION_JSON.isCompatibleWith(mediaType));
+    }
+
+    // Player или коллекция игроков с объявленным типом элемента
+    private static boolean isPlayerType(Type type) {
+        if (type == Player.class) {
+            return true;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            return parameterized.getRawType() instanceof Class &&
+                    Collection.class.isAssignableFrom((Class<?>) parameterized.getRawType()) &&
+                    parameterized.getActualTypeArguments()[0] == Player.class;
+        }
+        return false;
+    }
+
+    @Override
+    public void write(Object value, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        write(value, null, contentType, outputMessage);
+    }
+
+    @Override
+    public void write(Object value, Type type, MediaType contentType, HttpOutputMessage outputMessage)
+            throws IOException {
+        outputMessage.getHeaders().setContentType(contentType == null || !contentType.isConcrete()
+                ? MediaType.APPLICATION_JSON : contentType);
+        OutputStream body = outputMessage.getBody();
+        if (value instanceof Player) {
+            body.write(json((Player) value));
+        } else {
+            body.write('[');
+            boolean first = true;
+            for (Object player : (Collection<?>) value) {
+                if (!first) {
+                    body.write(',');
+                }
+                first = false;
+                body.write(player == null ? NULL : json((Player) player));
+            }
+            body.write(']');
+        }
+        body.flush();
+    }
+
+    private byte[] json(Player player) {
+        return cache.getJson(player, this::serialize);
+    }
+
+    private byte[] serialize(Player player) {
+        try {
+            return writer.writeValueAsBytes(player);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write player " + player.getId(), e);
+        }
+    }
+
+    // не вызываются: canRead всегда false
+    @Override
+    public Object read(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("PlayerJsonConverter does not read request bodies", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        return read(contextClass, inputMessage);
+    }
+}
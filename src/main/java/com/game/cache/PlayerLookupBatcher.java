@@ -0,0 +1,164 @@
+package com.game.cache;
+
+import com.game.deadline.RequestDeadline;
+import com.game.entity.Player;
+import com.game.exceptions.DeadlineExceededException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Объединение одновременных чтений игроков по разным id в один запрос (в духе DataLoader).
+ *
+ * Если сейчас не выполняется ни один пакет, вызов читает свой id сразу, без ожидания. Пока пакет
+ * выполняется, новые вызовы собираются в следующий: первый из них ждет окно (player.find-batch.window-us),
+ * остальные за это время добавляют свои id, затем первый вызов одним запросом читает все id пакета
+ * и раздает результаты. Если пакет набрал player.find-batch.max-size id раньше окончания окна,
+ * его сразу выполняет вызов, который его заполнил.
+ *
+ * Пакет выполняется со сроком самого терпеливого из его вызовов (без срока, если хотя бы у одного срока нет),
+ * поэтому клиент с коротким X-Request-Timeout не обрывает чтение для остальных. Свой срок каждый вызов
+ * применяет только к ожиданию результата. Loader'ы всех вызовов должны быть равнозначны.
+ * Ошибка loader'а достается всем вызовам пакета.
+ */
+@Component
+public class PlayerLookupBatcher {
+
+    private static final class Batch {
+        final Map<Long, CompletableFuture<Player>> futures = new LinkedHashMap<>();
+        boolean unbounded;
+        long deadline = Long.MIN_VALUE;
+
+        CompletableFuture<Player> join(Long id) {
+            Long callerDeadline = RequestDeadline.get();
+            if (callerDeadline == null) {
+                unbounded = true;
+            } else if (deadline == Long.MIN_VALUE || callerDeadline - deadline > 0) {
+                deadline = callerDeadline;
+            }
+            return futures.computeIfAbsent(id, key -> new CompletableFuture<>());
+        }
+
+        Long deadline() {
+            return unbounded ? null : deadline;
+        }
+    }
+
+    private final long windowNanos;
+    private final int maxSize;
+    private final Object lock = new Object();
+    private Batch current;
+    private int inFlight;
+
+    @Autowired
+    public PlayerLookupBatcher(@Value("${player.find-batch.window-us:1000}") long windowMicros,
+                               @Value("${player.find-batch.max-size:100}") int maxSize) {
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * Игрок по id или null, если его нет.
+     *
+     * @param loader чтение игроков по набору id: id -> игрок, отсутствующих id в ответе нет
+     */
+    public Player load(Long id, Function<Collection<Long>, Map<Long, Player>> loader) {
+        if (windowNanos <= 0 || maxSize == 1) {
+            return loader.apply(Collections.singleton(id)).get(id);
+        }
+
+        Batch batch;
+        Batch ready = null;
+        boolean leader = false;
+        CompletableFuture<Player> future;
+        synchronized (lock) {
+            if (current == null && inFlight == 0) {
+                // объединять не с чем - читаем сразу
+                batch = new Batch();
+                future = batch.join(id);
+                ready = batch;
+                inFlight++;
+            } else {
+                if (current == null) {
+                    current = new Batch();
+                    leader = true;
+                }
+                batch = current;
+                future = batch.join(id);
+                if (batch.futures.size() >= maxSize) {
+                    ready = take(batch);
+                }
+            }
+        }
+
+        if (ready == null && leader) {
+            LockSupport.parkNanos(Math.min(windowNanos, Math.max(0, RequestDeadline.remainingNanos())));
+            synchronized (lock) {
+                // пакет мог уже забрать вызов, заполнивший его до max-size
+                if (current == batch) {
+                    ready = take(batch);
+                }
+            }
+        }
+        if (ready != null) {
+            dispatch(ready, loader);
+        }
+        return await(future);
+    }
+
+    // пакет больше не принимает id и считается выполняющимся; вызывается под lock
+    private Batch take(Batch batch) {
+        current = null;
+        inFlight++;
+        return batch;
+    }
+
+    private void dispatch(Batch batch, Function<Collection<Long>, Map<Long, Player>> loader) {
+        Long callerDeadline = RequestDeadline.get();
+        RequestDeadline.set(batch.deadline());
+        try {
+            Map<Long, Player> players = loader.apply(batch.futures.keySet());
+            batch.futures.forEach((id, future) -> future.complete(players.get(id)));
+        } catch (RuntimeException | Error e) {
+            batch.futures.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            RequestDeadline.set(callerDeadline);
+            synchronized (lock) {
+                inFlight--;
+            }
+        }
+    }
+
+    // ждем не дольше срока запроса: пакет выполняется в чужом потоке
+    private static Player await(CompletableFuture<Player> future) {
+        try {
+            long remaining = RequestDeadline.remainingNanos();
+            return remaining == Long.MAX_VALUE ? future.get() : future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Request cancelled");
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.game.cache;
+
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.game.filter.PlayerFilter;
+import com.game.service.PlayerStateListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш страниц списка игроков.
+ *
+ * Ключ - нормализованный фильтр, порядок сортировки, номер и размер страницы.
+ * Инвалидация за O(1): каждая запись увеличивает счетчик поколений, а страница, посчитанная
+ * в старом поколении, считается промахом. Поколение читается до запроса к БД, поэтому
+ * результат, пересекшийся с записью, в кэш уже не попадет.
+ * Количество страниц ограничено, вытесняются давно не использованные (LRU).
+ */
+@Component
+public class PlayerQueryCache implements PlayerStateListener {
+
+    private static final class PageKey {
+        final PlayerFilter filter;
+        final PlayerOrder order;
+        final int pageNumber;
+        final int pageSize;
+
+        PageKey(PlayerFilter filter, PlayerOrder order, int pageNumber, int pageSize) {
+            this.filter = filter;
+            this.order = order;
+            this.pageNumber = pageNumber;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PageKey that = (PageKey) o;
+            return pageNumber == that.pageNumber &&
+                    pageSize == that.pageSize &&
+                    order == that.order &&
+                    filter.equals(that.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, order, pageNumber, pageSize);
+        }
+    }
+
+    private static final class CachedPage {
+        final long generation;
+        final List<Player> players;
+
+        CachedPage(long generation, List<Player> players) {
+            this.generation = generation;
+            this.players = players;
+        }
+    }
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Map<PageKey, CachedPage> pages;
+
+    @Autowired
+    public PlayerQueryCache(@Value("${player.cache.max-pages:1024}") int maxPages) {
+        this.pages = Collections.synchronizedMap(new LinkedHashMap<PageKey, CachedPage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, CachedPage> eldest) {
+                return size() > maxPages;
+            }
+        });
+    }
+
+    /**
+     * Возвращает страницу из кэша, если она посчитана в текущем поколении,
+     * иначе вызывает loader и запоминает результат.
+     */
+    public List<Player> getPage(PlayerFilter filter, PlayerOrder order, int pageNumber, int pageSize,
+                                Supplier<List<Player>> loader) {
+        PageKey key = new PageKey(filter, order, pageNumber, pageSize);
+        long current = generation.get();
+
+        CachedPage cached = pages.get(key);
+        if (cached != null && cached.generation == current) {
+            hits.incrementAndGet();
+            return cached.players;
+        }
+
+        misses.incrementAndGet();
+        List<Player> players = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+        if (generation.get() == current) {
+            pages.put(key, new CachedPage(current, players));
+        }
+        return players;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        generation.incrementAndGet();
+        pages.clear();
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        generation.incrementAndGet();
+    }
+}
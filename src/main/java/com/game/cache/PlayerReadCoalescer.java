@@ -0,0 +1,84 @@
+package com.game.cache;
+
+import com.game.dto.CoalescingStats;
+import com.game.entity.Player;
+import com.game.filter.PlayerFilter;
+import com.game.service.PlayerStateListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных чтений списка игроков и игрока по id (single-flight).
+ *
+ * Ключ включает поколение данных, которое увеличивается после каждой закоммиченной записи.
+ * Вызов присоединяется только к вычислению, начатому в том же поколении, поэтому чтение,
+ * пришедшее после записи, никогда не получит результат, посчитанный до нее.
+ */
+@Component
+public class PlayerReadCoalescer implements PlayerStateListener {
+
+    private static final class Key {
+        final long generation;
+        final Object request;
+
+        Key(long generation, Object request) {
+            this.generation = generation;
+            this.request = request;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return generation == that.generation && request.equals(that.request);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(generation, request);
+        }
+    }
+
+    private final AtomicLong generation = new AtomicLong();
+    private final SingleFlight<Key, List<Player>> lists = new SingleFlight<>();
+    private final SingleFlight<Key, Player> players = new SingleFlight<>();
+
+    /**
+     * Отфильтрованный список игроков. Каждый вызов получает свою копию списка:
+     * вызывающие сортируют его на месте.
+     */
+    public List<Player> list(PlayerFilter filter, Supplier<List<Player>> loader) {
+        return new ArrayList<>(lists.execute(new Key(generation.get(), filter), loader));
+    }
+
+    public Player find(Long id, Supplier<Player> loader) {
+        return players.execute(new Key(generation.get(), id), loader);
+    }
+
+    public CoalescingStats getStats() {
+        return new CoalescingStats(lists.getExecutions(), lists.getCoalesced(),
+                players.getExecutions(), players.getCoalesced());
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        generation.incrementAndGet();
+    }
+}
@@ -0,0 +1,77 @@
+package com.game.cache;
+
+import com.game.deadline.RequestDeadline;
+import com.game.exceptions.DeadlineExceededException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных вычислений: первый вызов с ключом выполняет loader,
+ * остальные, пришедшие пока он выполняется, ждут и получают тот же результат (или то же исключение).
+ * Результат не запоминается - следующий вызов после завершения снова выполнит loader.
+ * Ждущие вызовы ограничены своим RequestDeadline, а не временем чужого loader.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // сколько раз loader действительно выполнялся
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    // сколько вызовов получили чужой результат
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            long remaining = RequestDeadline.remainingNanos();
+            return remaining == Long.MAX_VALUE ? running.get() : running.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Request cancelled");
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.game.changelog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.dto.PlayerChange;
+import com.game.entity.Player;
+import com.game.exceptions.ChangesCompactedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал изменений игроков.
+ *
+ * append вызывается из пишущих методов PlayerService внутри их транзакции, поэтому запись журнала
+ * фиксируется (или откатывается) вместе с изменением игрока. Вставка ничего не блокирует: номер seq,
+ * который видят клиенты, запись получает уже после коммита - его присваивает sequence() перед чтением
+ * журнала, под блокировкой строки player_changelog_state. Запись, закоммиченная позже, получает
+ * больший seq, и читатель, дошедший до seq N, не пропустит запись с меньшим номером.
+ *
+ * Старые записи периодически удаляются: остаются последние player.changelog.retain,
+ * а граница удаленного (horizon) сохраняется, чтобы отвечать 410 клиентам, которые слишком отстали.
+ */
+@Component
+public class PlayerChangelog implements DisposableBean {
+
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerChangelog.class);
+
+    private static final TypeReference<LinkedHashMap<String, Object>> FIELDS_TYPE =
+            new TypeReference<LinkedHashMap<String, Object>>() {
+            };
+
+    // сколько записей нумеруется в одной транзакции sequence()
+    private static final int SEQUENCE_BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final long retain;
+    private final ScheduledExecutorService compactor;
+
+    @Autowired
+    public PlayerChangelog(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           @Value("${player.changelog.retain:1000000}") long retain,
+                           @Value("${player.changelog.compact-interval-seconds:600}") long compactIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retain = retain;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "player-changelog-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactSafely, compactIntervalSeconds, compactIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    // значения полей игрока в том виде, в каком они попадают в журнал
+    public static Map<String, Object> fieldsOf(Player player) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", player.getName());
+        fields.put("title", player.getTitle());
+        fields.put("race", player.getRace() == null ? null : player.getRace().name());
+        fields.put("profession", player.getProfession() == null ? null : player.getProfession().name());
+        fields.put("birthday", player.getBirthday() == null ? null : player.getBirthday().getTime());
+        fields.put("banned", player.getBanned());
+        fields.put("experience", player.getExperience());
+        fields.put("level", player.getLevel());
+        fields.put("untilNextLevel", player.getUntilNextLevel());
+        return fields;
+    }
+
+    // поля, значения которых изменились
+    public static Map<String, Object> diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        after.forEach((field, value) -> {
+            if (!Objects.equals(before.get(field), value)) {
+                changes.put(field, value);
+            }
+        });
+        return changes;
+    }
+
+    // добавляет запись в журнал; должен вызываться внутри транзакции изменения
+    public void append(String op, Long playerId, Map<String, Object> changes) {
+        jdbcTemplate.update("INSERT INTO player_changelog (op, player_id, changes) VALUES (?, ?, ?)",
+                op, playerId, changes.isEmpty() ? null : toJson(changes));
+    }
+
+    /**
+     * Изменения с номером больше since, по возрастанию номера, не больше limit штук.
+     * Если часть нужных записей уже удалена компактизацией - ChangesCompactedException.
+     */
+    public List<PlayerChange> changesSince(long since, int limit) {
+        sequence();
+        checkNotCompacted(since);
+        List<PlayerChange> changes = jdbcTemplate.query(
+                "SELECT seq, op, player_id, changes FROM player_changelog WHERE seq > ? ORDER BY seq LIMIT ?",
+                (rs, row) -> new PlayerChange(rs.getLong("seq"), rs.getString("op"), rs.getLong("player_id"),
+                        fromJson(rs.getString("changes"))),
+                since, limit);
+        // compact() сдвигает horizon до удаления строк: если строки пропали между проверкой и чтением,
+        // повторное чтение horizon это покажет, и клиент получит 410, а не пропуск в журнале
+        checkNotCompacted(since);
+        return changes;
+    }
+
+    /**
+     * Присваивает seq закоммиченным записям без номера, по порядку вставки.
+     * Запрос видит только закоммиченные записи, а номера выдаются под блокировкой строки состояния,
+     * поэтому запись, чья транзакция еще не закоммичена, получит номер больше всех уже выданных.
+     */
+    public void sequence() {
+        while (hasUnsequenced()) {
+            Integer numbered = transactionTemplate.execute(status -> {
+                long last = jdbcTemplate.queryForObject(
+                        "SELECT last_seq FROM player_changelog_state WHERE id = 1 FOR UPDATE", Long.class);
+                List<Long> ids = jdbcTemplate.queryForList(
+                        "SELECT id FROM player_changelog WHERE seq IS NULL ORDER BY id LIMIT ?", Long.class,
+                        SEQUENCE_BATCH);
+                List<Object[]> args = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    args.add(new Object[]{++last, id});
+                }
+                jdbcTemplate.batchUpdate("UPDATE player_changelog SET seq = ? WHERE id = ?", args);
+                jdbcTemplate.update("UPDATE player_changelog_state SET last_seq = ? WHERE id = 1", last);
+                return ids.size();
+            });
+            if (numbered == null || numbered < SEQUENCE_BATCH) {
+                return;
+            }
+        }
+    }
+
+    private boolean hasUnsequenced() {
+        return !jdbcTemplate.queryForList("SELECT id FROM player_changelog WHERE seq IS NULL LIMIT 1", Long.class)
+                .isEmpty();
+    }
+
+    private void checkNotCompacted(long since) {
+        long horizon = horizon();
+        if (since < horizon) {
+            throw new ChangesCompactedException("Changes up to " + horizon + " have been compacted");
+        }
+    }
+
+    public long horizon() {
+        return jdbcTemplate.queryForObject("SELECT horizon FROM player_changelog_state WHERE id = 1", Long.class);
+    }
+
+    // удаляет записи старше последних player.changelog.retain
+    public void compact() {
+        compact(retain);
+    }
+
+    // удаляет записи старше последних keep; сначала сдвигается horizon, потом удаляются строки
+    public void compact(long keep) {
+        sequence();
+        Long last = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM player_changelog", Long.class);
+        if (last == null || last <= keep) {
+            return;
+        }
+        long horizon = last - keep;
+        jdbcTemplate.update("UPDATE player_changelog_state SET horizon = GREATEST(horizon, ?) WHERE id = 1", horizon);
+        int removed = jdbcTemplate.update("DELETE FROM player_changelog WHERE seq <= ?", horizon);
+        log.info("Compacted {} player changelog entries up to seq {}", removed, horizon);
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.warn("Player changelog compaction failed", e);
+        }
+    }
+
+    private String toJson(Map<String, Object> changes) {
+        try {
+            return mapper.writeValueAsString(changes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        if (json == null) {
+            return Collections.emptyMap();
+        }
+        try {
+            return mapper.readValue(json, FIELDS_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        compactor.shutdownNow();
+    }
+}
@@ -0,0 +1,124 @@
+package com.game.circuit;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * DataSource, который пропускает обращения к БД через DatabaseCircuitBreaker.
+ *
+ * При разомкнутом автомате соединение не выдается - бросается SQLTransientConnectionException
+ * (Spring переводит ее в DataAccessException или CannotCreateTransactionException), и запрос не висит на JDBC.
+ * Автомат получает один результат на выданное соединение - при его закрытии: время самого долгого execute*
+ * и была ли среди них ошибка БД. Поэтому пробное соединение в HALF_OPEN - ровно одна проба,
+ * сколько бы запросов оно ни выполнило. Ошибкой БД считаются только
+ * ошибки соединения и временные ошибки: нарушение ограничений, синтаксиса или взаимная блокировка говорят
+ * о запросе, а не о БД, а отмена по сроку запроса (SQLTimeoutException) учитывается только как медленный запрос.
+ */
+public class CircuitBreakerDataSource extends DelegatingDataSource {
+
+    private final DatabaseCircuitBreaker breaker;
+
+    public CircuitBreakerDataSource(DataSource target, DatabaseCircuitBreaker breaker) {
+        super(target);
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            return withBreaker(super.getConnection());
+        } catch (SQLException e) {
+            breaker.record(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            return withBreaker(super.getConnection(username, password));
+        } catch (SQLException e) {
+            breaker.record(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        if (!breaker.tryAcquire()) {
+            throw new SQLTransientConnectionException("Database circuit breaker is open", "08001");
+        }
+    }
+
+    // итог запросов одного соединения; соединение используется одним потоком
+    private static final class Outcome {
+        long slowestNanos;
+        boolean failed;
+        boolean recorded;
+    }
+
+    private Connection withBreaker(Connection connection) {
+        Outcome outcome = new Outcome();
+        return (Connection) Proxy.newProxyInstance(CircuitBreakerDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (method.getName().equals("close") && !outcome.recorded) {
+                            outcome.recorded = true;
+                            breaker.record(outcome.slowestNanos, outcome.failed);
+                        }
+                    }
+                    if (result instanceof Statement) {
+                        return measured((Statement) result, method.getReturnType(), outcome);
+                    }
+                    return result;
+                });
+    }
+
+    // Statement, PreparedStatement или CallableStatement - по типу, который вернул метод Connection
+    private Object measured(Statement statement, Class<?> type, Outcome outcome) {
+        return Proxy.newProxyInstance(CircuitBreakerDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> {
+                    if (!method.getName().startsWith("execute")) {
+                        try {
+                            return method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        Throwable cause = e.getCause();
+                        outcome.failed |= cause instanceof SQLException && isDatabaseFailure((SQLException) cause);
+                        throw cause;
+                    } finally {
+                        outcome.slowestNanos = Math.max(outcome.slowestNanos, System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private static boolean isDatabaseFailure(SQLException e) {
+        if (e instanceof SQLTimeoutException || e instanceof SQLTransactionRollbackException) {
+            return false;
+        }
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+        // класс 08 - ошибки соединения, у драйверов без подклассов SQLException
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+}
@@ -0,0 +1,204 @@
+package com.game.circuit;
+
+import com.game.dto.CircuitBreakerStats;
+import com.game.exceptions.DatabaseUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Автомат (circuit breaker) для обращений к БД.
+ *
+ * Обращение к БД - одно выданное соединение (CircuitBreakerDataSource сообщает его результат при закрытии).
+ * CLOSED: результаты последних player.breaker.window обращений держатся в скользящем окне. Когда в окне
+ * не меньше player.breaker.minimum-calls обращений и доля ошибок достигает player.breaker.failure-rate %
+ * или доля медленных (дольше player.breaker.slow-call-ms) - player.breaker.slow-call-rate %, автомат размыкается.
+ * OPEN: новые соединения не выдаются (CircuitBreakerDataSource), запрос сразу получает ошибку вместо ожидания JDBC.
+ * HALF_OPEN: через player.breaker.open-ms выдается player.breaker.half-open-calls пробных соединений;
+ * все успешны и быстры - автомат замыкается и зовет слушателей восстановления, иначе снова размыкается.
+ */
+@Component
+public class DatabaseCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final int failureRate;
+    private final int slowCallRate;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+
+    // скользящее окно: для каждого обращения - была ли ошибка и было ли оно медленным
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int windowSize;
+    private int windowIndex;
+    private int failures;
+    private int slow;
+
+    private State state = State.CLOSED;
+    private long stateSince = System.nanoTime();
+    private int probesStarted;
+    private int probesSucceeded;
+    private long calls;
+    private long rejected;
+    private long opened;
+
+    @Autowired
+    public DatabaseCircuitBreaker(Environment environment) {
+        int window = environment.getProperty("player.breaker.window", Integer.class, 50);
+        this.failedCalls = new boolean[window];
+        this.slowCalls = new boolean[window];
+        this.minimumCalls = Math.min(window, environment.getProperty("player.breaker.minimum-calls", Integer.class, 20));
+        this.failureRate = environment.getProperty("player.breaker.failure-rate", Integer.class, 50);
+        this.slowCallRate = environment.getProperty("player.breaker.slow-call-rate", Integer.class, 80);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(
+                environment.getProperty("player.breaker.slow-call-ms", Long.class, 2000L));
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(
+                environment.getProperty("player.breaker.open-ms", Long.class, 5000L));
+        this.halfOpenCalls = environment.getProperty("player.breaker.half-open-calls", Integer.class, 5);
+    }
+
+    /**
+     * Можно ли сейчас обратиться к БД. В состоянии HALF_OPEN каждое разрешение - пробный запрос.
+     * Если пробные запросы не вернули результата за open-ms, выдаются новые.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        if (state == State.OPEN && now - stateSince >= openNanos) {
+            moveTo(State.HALF_OPEN, now);
+        } else if (state == State.HALF_OPEN && probesStarted >= halfOpenCalls && now - stateSince >= openNanos) {
+            stateSince = now;
+            probesStarted = probesSucceeded;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && probesStarted < halfOpenCalls) {
+            probesStarted++;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    /**
+     * Результат обращения (соединения, выданного tryAcquire): время самого долгого запроса
+     * и была ли ошибка, говорящая о недоступности БД.
+     */
+    public void record(long nanos, boolean failed) {
+        boolean recovered = false;
+        synchronized (this) {
+            calls++;
+            boolean isSlow = nanos >= slowCallNanos;
+            if (state == State.CLOSED) {
+                addToWindow(failed, isSlow);
+                if (windowSize >= minimumCalls
+                        && (failures * 100 >= failureRate * windowSize || slow * 100 >= slowCallRate * windowSize)) {
+                    log.warn("Opening database circuit breaker: {} failed and {} slow of last {} calls",
+                            failures, slow, windowSize);
+                    moveTo(State.OPEN, System.nanoTime());
+                }
+            } else if (state == State.HALF_OPEN) {
+                if (failed || isSlow) {
+                    log.warn("Database circuit breaker probe {}, opening again", failed ? "failed" : "was slow");
+                    moveTo(State.OPEN, System.nanoTime());
+                } else if (++probesSucceeded >= halfOpenCalls) {
+                    log.info("Database recovered, closing circuit breaker");
+                    moveTo(State.CLOSED, System.nanoTime());
+                    recovered = true;
+                }
+            }
+        }
+        if (recovered) {
+            recoveryListeners.forEach(Runnable::run);
+        }
+    }
+
+    // запись не ставится в очередь при разомкнутом автомате - клиент сразу получает 503
+    public void checkAvailable() {
+        if (currentState() == State.OPEN) {
+            synchronized (this) {
+                rejected++;
+            }
+            throw new DatabaseUnavailableException("Database circuit breaker is open");
+        }
+    }
+
+    public boolean isClosed() {
+        return currentState() == State.CLOSED;
+    }
+
+    // слушатель вызывается в потоке, завершившем последний пробный запрос - долгую работу он переносит в свой пул
+    public void addRecoveryListener(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    // принудительно разомкнуть, например на время переключения БД
+    public synchronized void forceOpen() {
+        moveTo(State.OPEN, System.nanoTime());
+    }
+
+    // принудительно замкнуть и очистить окно
+    public void reset() {
+        synchronized (this) {
+            moveTo(State.CLOSED, System.nanoTime());
+        }
+        recoveryListeners.forEach(Runnable::run);
+    }
+
+    public synchronized CircuitBreakerStats stats(long staleResponses) {
+        return new CircuitBreakerStats(currentState().name(), calls, rejected, opened, staleResponses,
+                windowSize, failures, slow);
+    }
+
+    // OPEN с истекшим open-ms снаружи уже выглядит как HALF_OPEN, хотя переход делает следующий tryAcquire
+    private synchronized State currentState() {
+        if (state == State.OPEN && System.nanoTime() - stateSince >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void addToWindow(boolean failed, boolean isSlow) {
+        if (windowSize == failedCalls.length) {
+            failures -= failedCalls[windowIndex] ? 1 : 0;
+            slow -= slowCalls[windowIndex] ? 1 : 0;
+        } else {
+            windowSize++;
+        }
+        failedCalls[windowIndex] = failed;
+        slowCalls[windowIndex] = isSlow;
+        failures += failed ? 1 : 0;
+        slow += isSlow ? 1 : 0;
+        windowIndex = (windowIndex + 1) % failedCalls.length;
+    }
+
+    private void moveTo(State next, long now) {
+        if (next == State.OPEN && state != State.OPEN) {
+            opened++;
+        }
+        state = next;
+        stateSince = now;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.CLOSED) {
+            windowSize = 0;
+            windowIndex = 0;
+            failures = 0;
+            slow = 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.game.circuit;
+
+import com.game.cache.ApproximateLruCache;
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.game.filter.PlayerFilter;
+import com.game.service.PlayerStateListener;
+import com.game.writebehind.PlayerWriteBehind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Последние успешно прочитанные игроки по id и страницы списка - запасной ответ, когда БД недоступна.
+ *
+ * Успешные чтения запоминаются (приблизительный LRU без общей блокировки, player.breaker.stale-players
+ * и player.breaker.stale-pages),
+ * записи игроков обновляют запомненную версию. Если чтение упало с ошибкой БД, отдается запомненный результат
+ * с пометкой StaleResponse, а чтение ставится в очередь на обновление. Очередь выполняется в фоне,
+ * когда автомат замкнут: сразу после восстановления БД и раз в player.breaker.refresh-interval-ms.
+ * Отмена по сроку самого запроса при замкнутом автомате не признак деградации БД - такая ошибка не подменяется.
+ */
+@Component
+public class StaleReadCache implements PlayerStateListener, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StaleReadCache.class);
+
+    private static final class Stored<T> {
+        final T value;
+        final long storedAt;
+
+        Stored(T value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final DatabaseCircuitBreaker breaker;
+    private final ApproximateLruCache<Long, Stored<Player>> players;
+    // ключ страницы - список (фильтр, порядок, номер, размер)
+    private final ApproximateLruCache<List<Object>, Stored<List<Player>>> pages;
+    private final Map<Object, Runnable> pendingRefresh = new ConcurrentHashMap<>();
+    private final AtomicLong served = new AtomicLong();
+    private final ScheduledExecutorService refresher;
+
+    @Autowired
+    public StaleReadCache(DatabaseCircuitBreaker breaker,
+                          @Value("${player.breaker.stale-players:100000}") int maxPlayers,
+                          @Value("${player.breaker.stale-pages:1024}") int maxPages,
+                          @Value("${player.breaker.refresh-interval-ms:1000}") long refreshIntervalMillis) {
+        this.breaker = breaker;
+        this.players = new ApproximateLruCache<>(maxPlayers);
+        this.pages = new ApproximateLruCache<>(maxPages);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stale-read-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        breaker.addRecoveryListener(() -> refresher.execute(this::refresh));
+    }
+
+    public void rememberPlayer(Player player) {
+        players.put(player.getId(), new Stored<>(player, System.currentTimeMillis()));
+    }
+
+    public void rememberPage(PlayerFilter filter, PlayerOrder order, int pageNumber, int pageSize, List<Player> page) {
+        pages.put(pageKey(filter, order, pageNumber, pageSize), new Stored<>(page, System.currentTimeMillis()));
+    }
+
+    /**
+     * Запомненный игрок вместо упавшего чтения; refresh повторит чтение, когда БД восстановится.
+     * Если игрока нет или ошибка не связана с доступностью БД - бросается исходная ошибка.
+     */
+    public Player player(Long id, RuntimeException failure, Runnable refresh) {
+        return stale(id, players.get(id), failure, refresh);
+    }
+
+    public List<Player> page(PlayerFilter filter, PlayerOrder order, int pageNumber, int pageSize,
+                             RuntimeException failure, Runnable refresh) {
+        List<Object> key = pageKey(filter, order, pageNumber, pageSize);
+        return stale(key, pages.get(key), failure, refresh);
+    }
+
+    public long getServed() {
+        return served.get();
+    }
+
+    private <T> T stale(Object key, Stored<T> stored, RuntimeException failure, Runnable refresh) {
+        if (stored == null || (failure instanceof QueryTimeoutException && breaker.isClosed())) {
+            throw failure;
+        }
+        pendingRefresh.put(key, refresh);
+        served.incrementAndGet();
+        StaleResponse.mark(stored.storedAt);
+        return stored.value;
+    }
+
+    private static List<Object> pageKey(PlayerFilter filter, PlayerOrder order, int pageNumber, int pageSize) {
+        return Arrays.asList(filter, order, pageNumber, pageSize);
+    }
+
+    // повторяет чтения, отданные из запомненных данных; успешное чтение само обновит запомненный результат
+    private void refresh() {
+        for (Map.Entry<Object, Runnable> entry : pendingRefresh.entrySet()) {
+            if (!breaker.isClosed()) {
+                return;
+            }
+            if (!pendingRefresh.remove(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            try {
+                entry.getValue().run();
+            } catch (RuntimeException e) {
+                log.debug("Failed to refresh stale read {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        this.players.clear();
+        pages.clear();
+        pendingRefresh.clear();
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        if (player.getId() != null && players.containsKey(player.getId())) {
+            rememberPlayer(PlayerWriteBehind.copyOf(player));
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        players.remove(id);
+        pendingRefresh.remove(id);
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,30 @@
+package com.game.circuit;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Пометка текущего запроса: ответ собран из последних известных данных, а не из БД.
+ *
+ * Хранится атрибутом запроса (Bulkheads переносит атрибуты в поток пула), StaleResponseAdvice
+ * превращает ее в заголовки Warning и Age. Вне запроса (фоновое обновление) пометка ничего не делает.
+ */
+public final class StaleResponse {
+
+    public static final String ATTRIBUTE = StaleResponse.class.getName() + ".storedAt";
+
+    private StaleResponse() {
+    }
+
+    // storedAtMillis - когда данные были получены из БД; при нескольких пометках остается самая старая
+    public static void mark(long storedAtMillis) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        Object previous = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (previous == null || (Long) previous > storedAtMillis) {
+            attributes.setAttribute(ATTRIBUTE, storedAtMillis, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
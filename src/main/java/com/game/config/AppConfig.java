@@ -1,10 +1,21 @@
 package com.game.config;
 
+import com.game.circuit.CircuitBreakerDataSource;
+import com.game.circuit.DatabaseCircuitBreaker;
+import com.game.deadline.DeadlineDataSource;
+import com.game.migration.SchemaMigrator;
+import com.game.repository.OffHeapPlayerRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
@@ -12,25 +23,33 @@ import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.stereotype.Controller;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.web.bind.annotation.ControllerAdvice;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
 
+// корневой контекст: сервисы, репозитории и фоновые компоненты - по одному экземпляру на приложение.
+// Контроллеры и WebConfig живут в контексте DispatcherServlet (MyWebAppInit), здесь они не сканируются
 @Configuration
 @EnableTransactionManagement
-@ComponentScan("com.game")
+@ComponentScan(basePackages = "com.game", excludeFilters = @ComponentScan.Filter(type = FilterType.ANNOTATION,
+        classes = {Controller.class, ControllerAdvice.class, Configuration.class}))
 @EnableJpaRepositories(basePackages = "com.game.repository")
+@PropertySource(value = "classpath:application.properties", encoding = "UTF-8")
 public class AppConfig {
 
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+    @DependsOn("schemaMigrator")
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-        em.setDataSource(dataSource());
+        em.setDataSource(dataSource);
         em.setPackagesToScan("com.game.entity");
 
         JpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
@@ -40,28 +59,52 @@ public class AppConfig {
         return em;
     }
 
+    // DeadlineDataSource - срок запроса в query timeout, CircuitBreakerDataSource - отказ без ожидания, пока БД недоступна
     @Profile("prod")
     @Bean
-    public DataSource dataSource() {
+    public DataSource dataSource(DatabaseCircuitBreaker circuitBreaker) {
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        // useCursorFetch - без него Connector/J игнорирует fetch size и читает весь результат в память
         dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/rpg?serverTimezone=UTC&characterEncoding=UTF-8");
+        dataSource.setUrl("jdbc:mysql://localhost:3306/rpg?serverTimezone=UTC&characterEncoding=UTF-8&useCursorFetch=true");
         dataSource.setUsername("root");
         dataSource.setPassword("root");
-        return dataSource;
+        return new CircuitBreakerDataSource(new DeadlineDataSource(dataSource), circuitBreaker);
     }
 
+    // схему создают миграции; тестовые данные загружаются из test.sql перед каждым тестом
     @Profile("dev")
     @Bean(name = "dataSource")
-    public DataSource dataSourceForTests() {
+    public DataSource dataSourceForTests(DatabaseCircuitBreaker circuitBreaker) {
 
-        return new EmbeddedDatabaseBuilder()
+        return new CircuitBreakerDataSource(new DeadlineDataSource(new EmbeddedDatabaseBuilder()
                 .generateUniqueName(true)
                 .setType(H2)
                 .setScriptEncoding("UTF-8")
                 .ignoreFailedDrops(true)
-                .addScript("test.sql")
-                .build();
+                .build()), circuitBreaker);
+    }
+
+    // применяем миграции схемы до создания EntityManagerFactory
+    @Bean(initMethod = "migrate")
+    public SchemaMigrator schemaMigrator(DataSource dataSource) {
+        return new SchemaMigrator(dataSource, "classpath*:db/migration/V*__*.sql");
+    }
+
+    // хранилище игроков вне кучи вместо таблицы в БД (включается вместе с prod или dev);
+    // при старте его заполняет PlayerService.warmUp - из снапшота или из таблицы player
+    @Profile("memory")
+    @Primary
+    @Bean
+    public OffHeapPlayerRepository memoryPlayerRepository(@Value("${player.memory.slab-records:8192}") int slabRecords,
+                                                          @Value("${player.memory.mapped-file:}") String mappedFile) {
+        return new OffHeapPlayerRepository(slabRecords, mappedFile.isEmpty() ? null : Paths.get(mappedFile));
+    }
+
+    // JdbcTemplate участвует в тех же транзакциях, что и JPA (JpaTransactionManager открывает общее соединение)
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
     }
 
     @Bean
@@ -2,13 +2,27 @@ package com.game.config;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.game.admission.AdmissionInterceptor;
+import com.game.admission.Workload;
+import com.game.bulkhead.Bulkheads;
+import com.game.cache.PlayerJsonCache;
+import com.game.cache.PlayerJsonConverter;
+import com.game.deadline.DeadlineInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.servlet.ViewResolver;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -17,11 +31,34 @@ import org.springframework.web.servlet.view.JstlView;
 
 import java.util.List;
 
+// контекст DispatcherServlet: только контроллеры, остальные компоненты берутся из корневого контекста (AppConfig).
+// @EnableTransactionManagement регистрирует здесь тот же auto-proxy creator, что и в AppConfig, -
+// через него к контроллерам подключается bulkheadAdvisor
 @Configuration
 @EnableWebMvc
-@ComponentScan("com.game")
+@EnableTransactionManagement
+@ComponentScan("com.game.controller")
 public class WebConfig implements WebMvcConfigurer {
 
+    private final DeadlineInterceptor deadlineInterceptor;
+    private final AdmissionInterceptor admissionInterceptor;
+    private final PlayerJsonCache playerJsonCache;
+
+    @Autowired
+    public WebConfig(DeadlineInterceptor deadlineInterceptor, AdmissionInterceptor admissionInterceptor,
+                     PlayerJsonCache playerJsonCache) {
+        this.deadlineInterceptor = deadlineInterceptor;
+        this.admissionInterceptor = admissionInterceptor;
+        this.playerJsonCache = playerJsonCache;
+    }
+
+    // методы контроллеров с @Workload выполняются в пуле своего класса нагрузки; роль INFRASTRUCTURE нужна,
+    // чтобы advisor подхватил auto-proxy creator из @EnableTransactionManagement
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor bulkheadAdvisor(Bulkheads bulkheads) {
+        return new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(Workload.class), bulkheads);
+    }
 
     @Bean
     public ViewResolver internalResourceViewResolver() {
@@ -42,11 +79,19 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
     }
 
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(deadlineInterceptor).addPathPatterns("/rest/**");
+        registry.addInterceptor(admissionInterceptor).addPathPatterns("/rest/**");
+    }
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
         MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
         converter.getObjectMapper().setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
         converter.getObjectMapper().setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        // игроки пишутся из кэша готового JSON тем же ObjectMapper, остальное - обычным Jackson
+        converters.add(new PlayerJsonConverter(playerJsonCache, converter.getObjectMapper().writer()));
         converters.add(converter);
     }
 }
\ No newline at end of file
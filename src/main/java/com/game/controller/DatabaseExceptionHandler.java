@@ -0,0 +1,36 @@
+package com.game.controller;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.sql.SQLTransientConnectionException;
+
+// ошибки обращения к БД; оба обработчика в одном классе, чтобы QueryTimeoutException выбирался точнее DataAccessException
+@ControllerAdvice
+public class DatabaseExceptionHandler {
+
+    // запрос к БД отменен по сроку запроса (DeadlineDataSource) - тот же ответ 504, что и DeadlineExceededException
+    @ExceptionHandler(QueryTimeoutException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public void queryTimeout() {
+    }
+
+    // соединение не выдано (автомат DatabaseCircuitBreaker разомкнут) - запрос не дошел до БД, ответ 503 вместо 500;
+    // остальные ошибки БД, в том числе во время разомкнутого автомата, обрабатываются как раньше
+    @ExceptionHandler({DataAccessException.class, TransactionException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void databaseUnavailable(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException || cause instanceof CannotGetJdbcConnectionException) {
+                return;
+            }
+        }
+        throw e;
+    }
+}
@@ -1,12 +1,31 @@
 package com.game.controller;
 
+import com.game.admission.Workload;
+import com.game.admission.WorkloadClass;
+import com.game.bulkhead.Bulkheads;
+import com.game.cache.PlayerJsonCache;
+import com.game.dto.BulkheadStats;
+import com.game.dto.CircuitBreakerStats;
+import com.game.dto.CoalescingStats;
+import com.game.dto.ExperiencePoint;
+import com.game.dto.ExperienceRollup;
+import com.game.dto.IdFilterStats;
+import com.game.dto.JsonCacheStats;
+import com.game.dto.PlayerAnalytics;
+import com.game.dto.PlayerChange;
+import com.game.dto.PlayerRank;
+import com.game.dto.PlayerStats;
 import com.game.entity.Player;
 import com.game.entity.Profession;
 import com.game.entity.Race;
+import com.game.filter.PlayerFilter;
 import com.game.service.PlayerService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  Controller
@@ -23,11 +42,16 @@ import java.util.List;
 public class PlayerController {
 
     private final PlayerService playerService;
+    private final Bulkheads bulkheads;
+    private final PlayerJsonCache jsonCache;
     @Autowired
-    public PlayerController(PlayerService playerService) {
+    public PlayerController(PlayerService playerService, Bulkheads bulkheads, PlayerJsonCache jsonCache) {
         this.playerService = playerService;
+        this.bulkheads = bulkheads;
+        this.jsonCache = jsonCache;
     }
     @GetMapping("/players")
+    @Workload(WorkloadClass.SCAN)
     public List<Player> getPlayersList(@RequestParam(value = "name", required = false) String name,
                                        @RequestParam(value = "title", required = false) String title,
                                        @RequestParam(value = "race", required = false) Race race,
@@ -44,15 +68,22 @@ public class PlayerController {
                                        @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize
     ) {
 
-        List<Player> playerList = playerService.getPlayerList(name, title, race, profession, after, before, banned,
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
                 minExperience, maxExperience, minLevel, maxLevel);
-        List<Player> sortedPlayers = playerService.sortPlayers(playerList, order);
 
-        return playerService.sortPage(sortedPlayers, pageNumber, pageSize);
+        return playerService.getPlayersPage(filter, order, pageNumber, pageSize);
+    }
+
+    // игроки по списку id (ids=1,2,3): один запрос вместо запроса на каждого игрока
+    @GetMapping(value = "/players", params = "ids")
+    @Workload(WorkloadClass.POINT)
+    public List<Player> getPlayersByIds(@RequestParam(value = "ids") List<Long> ids) {
+        return playerService.getPlayersByIds(ids);
     }
 
     // 7. получать количество игроков, которые соответствуют фильтрам
     @GetMapping("players/count")
+    @Workload(WorkloadClass.SCAN)
     public Integer getPlayersCount(@RequestParam(value = "name", required = false) String name,
                                    @RequestParam(value = "title", required = false) String title,
                                    @RequestParam(value = "race", required = false) Race race,
@@ -66,24 +97,144 @@ public class PlayerController {
                                    @RequestParam(value = "maxLevel", required = false) Integer maxLevel
     ) {
 
-        return playerService.getPlayerList(name, title, race, profession, after, before, banned,
-                minExperience, maxExperience, minLevel, maxLevel).size();
+        return playerService.countPlayers(new PlayerFilter(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel));
+    }
+
+    // распределение игроков по расам и профессиям
+    @GetMapping("players/stats")
+    @Workload(WorkloadClass.POINT)
+    public PlayerStats getPlayersStats() {
+        return playerService.getStats();
     }
 
     // 2. создавать нового игрока
     @PostMapping ("/players")
+    @Workload(WorkloadClass.WRITE)
     public Player createPlayer(@RequestBody Player player) {
         return playerService.createPlayer(player);
     }
 
     // 5. получать игрока по id;
     @GetMapping ("players/{id}")
+    @Workload(WorkloadClass.POINT)
     public Player getPlayer(@PathVariable(value = "id") Long id) {
         return playerService.findById(id);
     }
 
+    // аналитика по срезу игроков: опыт и уровень на квантилях (q=0.5,0.9,0.99), различные слова в титулах
+    @GetMapping("players/stats/analytics")
+    @Workload(WorkloadClass.POINT)
+    public PlayerAnalytics getPlayersAnalytics(@RequestParam(value = "race", required = false) Race race,
+                                               @RequestParam(value = "profession", required = false) Profession profession,
+                                               @RequestParam(value = "q", required = false, defaultValue = "0.5,0.9,0.99") List<Double> quantiles) {
+        return playerService.getAnalytics(race, profession, quantiles);
+    }
+
+    // статистика объединения одинаковых одновременных чтений
+    @GetMapping("players/stats/coalescing")
+    @Workload(WorkloadClass.POINT)
+    public CoalescingStats getCoalescingStats() {
+        return playerService.getCoalescingStats();
+    }
+
+    // фильтр Блума по id: заполнение и доля ложных срабатываний
+    @GetMapping("players/stats/id-filter")
+    @Workload(WorkloadClass.POINT)
+    public IdFilterStats getIdFilterStats() {
+        return playerService.getIdFilterStats();
+    }
+
+    // автомат обращений к БД: состояние, отказы и ответы из последних известных данных
+    @GetMapping("players/stats/circuit-breaker")
+    @Workload(WorkloadClass.POINT)
+    public CircuitBreakerStats getCircuitBreakerStats() {
+        return playerService.getCircuitBreakerStats();
+    }
+
+    // кэш сериализованного JSON игроков: попадания и промахи
+    @GetMapping("players/stats/json-cache")
+    @Workload(WorkloadClass.POINT)
+    public JsonCacheStats getJsonCacheStats() {
+        return jsonCache.getStats();
+    }
+
+    // загрузка пулов выполнения по классам нагрузки
+    @GetMapping("players/stats/bulkheads")
+    public Map<WorkloadClass, BulkheadStats> getBulkheadStats() {
+        return bulkheads.getStats();
+    }
+
+    // изменения игроков после заданного номера журнала (инкрементальная синхронизация)
+    @GetMapping("players/changes")
+    @Workload(WorkloadClass.POINT)
+    public List<PlayerChange> getPlayerChanges(@RequestParam(value = "since", required = false, defaultValue = "0") Long since,
+                                               @RequestParam(value = "limit", required = false, defaultValue = "1000") Integer limit) {
+        return playerService.getChanges(since, limit);
+    }
+
+    // место игрока в рейтинге по опыту: общее, среди расы и среди профессии
+    @GetMapping("players/{id}/rank")
+    @Workload(WorkloadClass.POINT)
+    public PlayerRank getPlayerRank(@PathVariable(value = "id") Long id) {
+        return playerService.getRank(id);
+    }
+
+    // процент игроков, у которых опыт меньше, чем у заданного
+    @GetMapping("players/{id}/percentile")
+    @Workload(WorkloadClass.POINT)
+    public Double getPlayerPercentile(@PathVariable(value = "id") Long id) {
+        return playerService.getPercentile(id);
+    }
+
+    // история опыта игрока: точки (время в мс, опыт) с from по to
+    @GetMapping("players/{id}/history")
+    @Workload(WorkloadClass.POINT)
+    public List<ExperiencePoint> getExperienceHistory(@PathVariable(value = "id") Long id,
+                                                      @RequestParam(value = "from", required = false) Long from,
+                                                      @RequestParam(value = "to", required = false) Long to) {
+        return playerService.getExperienceHistory(id, from, to);
+    }
+
+    // история опыта игрока, свернутая по интервалам длиной step мс
+    @GetMapping(value = "players/{id}/history", params = "step")
+    @Workload(WorkloadClass.POINT)
+    public List<ExperienceRollup> getExperienceRollup(@PathVariable(value = "id") Long id,
+                                                      @RequestParam(value = "from", required = false) Long from,
+                                                      @RequestParam(value = "to", required = false) Long to,
+                                                      @RequestParam(value = "step") Long step) {
+        return playerService.getExperienceRollup(id, from, to, step);
+    }
+
+    // лучшие игроки по опыту
+    @GetMapping("players/top")
+    @Workload(WorkloadClass.POINT)
+    public List<Player> getTopPlayers(@RequestParam(value = "race", required = false) Race race,
+                                      @RequestParam(value = "profession", required = false) Profession profession,
+                                      @RequestParam(value = "count", required = false, defaultValue = "10") Integer count) {
+        return playerService.getTopPlayers(race, profession, count);
+    }
+
+    // начислить опыт игроку (delta может быть отрицательной); запись в БД происходит пакетами
+    @PostMapping("players/{id}/experience")
+    @Workload(WorkloadClass.WRITE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void addPlayerExperience(@PathVariable(value = "id") Long id,
+                                    @RequestParam(value = "delta") Long delta) {
+        playerService.addExperience(Collections.singletonMap(id, delta));
+    }
+
+    // начислить опыт нескольким игрокам: тело запроса - объект {id: delta}
+    @PostMapping("players/experience")
+    @Workload(WorkloadClass.WRITE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void addPlayersExperience(@RequestBody Map<Long, Long> deltas) {
+        playerService.addExperience(deltas);
+    }
+
     // 3. редактировать характеристики существующего игрока
     @PostMapping("players/{id}")
+    @Workload(WorkloadClass.WRITE)
     public Player updatePlayer(@PathVariable(value = "id") Long id,
                                // Значения параметров преобразуются в объявленный тип аргумента метода
                                @RequestBody Player player) {
@@ -92,6 +243,7 @@ public class PlayerController {
 
     // 4. удалять игрока
     @DeleteMapping("/players/{id}")
+    @Workload(WorkloadClass.WRITE)
     public void deletePlayer(@PathVariable(value = "id") Long id) {
         playerService.deleteById(id);
     }
@@ -0,0 +1,43 @@
+package com.game.controller;
+
+import com.game.circuit.StaleResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ из последних известных данных (StaleResponse) помечается заголовками
+ * Warning: 110 - "Response is Stale" и Age - сколько секунд назад данные были прочитаны из БД.
+ */
+@ControllerAdvice
+public class StaleResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            Object storedAt = ((ServletServerHttpRequest) request).getServletRequest().getAttribute(StaleResponse.ATTRIBUTE);
+            if (storedAt != null) {
+                long age = TimeUnit.MILLISECONDS.toSeconds(Math.max(0, System.currentTimeMillis() - (Long) storedAt));
+                response.getHeaders().set(HttpHeaders.WARNING, STALE_WARNING);
+                response.getHeaders().set(HttpHeaders.AGE, Long.toString(age));
+            }
+        }
+        return body;
+    }
+}
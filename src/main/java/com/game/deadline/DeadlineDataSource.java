@@ -0,0 +1,62 @@
+package com.game.deadline;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * DataSource, который переносит срок запроса (RequestDeadline) в query timeout каждого Statement.
+ *
+ * Через него идут все обращения к БД - JPA, Spring Data и JdbcTemplate, поэтому брошенный клиентом запрос
+ * не держит соединение дольше своего срока: драйвер сам отменяет выполняющийся запрос.
+ * Если срок уже истек, Statement не создается (SQLTimeoutException, переводится Spring в QueryTimeoutException).
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    public DeadlineDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return withDeadlines(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return withDeadlines(super.getConnection(username, password));
+    }
+
+    private static Connection withDeadlines(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement) {
+                        applyDeadline((Statement) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static void applyDeadline(Statement statement) throws SQLException {
+        if (RequestDeadline.get() == null) {
+            return;
+        }
+        if (RequestDeadline.remainingNanos() <= 0) {
+            statement.close();
+            throw new SQLTimeoutException("Request deadline exceeded");
+        }
+        statement.setQueryTimeout(RequestDeadline.remainingQueryTimeoutSeconds());
+    }
+}
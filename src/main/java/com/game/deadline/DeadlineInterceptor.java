@@ -0,0 +1,70 @@
+package com.game.deadline;
+
+import com.game.admission.WorkloadClass;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задает срок выполнения запроса: из заголовка X-Request-Timeout (миллисекунды от получения запроса)
+ * или по умолчанию для класса нагрузки (player.deadline.&lt;scan|point|write&gt;-ms), но не больше player.deadline.max-ms.
+ * Запрос с нулевым сроком сразу получает 504.
+ */
+@Component
+public class DeadlineInterceptor implements HandlerInterceptor {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Map<WorkloadClass, Long> defaults = new EnumMap<>(WorkloadClass.class);
+    private final long maxMillis;
+
+    @Autowired
+    public DeadlineInterceptor(Environment environment) {
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            defaults.put(workload, environment.getProperty(
+                    "player.deadline." + workload.name().toLowerCase() + "-ms", Long.class, 5000L));
+        }
+        this.maxMillis = environment.getProperty("player.deadline.max-ms", Long.class, 30000L);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        WorkloadClass workload = WorkloadClass.of(handler);
+        if (workload == null) {
+            return true;
+        }
+
+        long timeoutMillis = Math.min(maxMillis, timeoutOf(request, defaults.get(workload)));
+        if (timeoutMillis <= 0) {
+            response.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+            return false;
+        }
+        RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.clear();
+    }
+
+    private static long timeoutOf(HttpServletRequest request, long defaultMillis) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header == null) {
+            return defaultMillis;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return defaultMillis;
+        }
+    }
+}
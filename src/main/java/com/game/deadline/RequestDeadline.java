@@ -0,0 +1,75 @@
+package com.game.deadline;
+
+import com.game.exceptions.DeadlineExceededException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Срок выполнения текущего запроса (по System.nanoTime), привязанный к потоку.
+ *
+ * Задается DeadlineInterceptor, переносится в пулы выполнения (wrap) и в JDBC (DeadlineDataSource).
+ * Длинные циклы в памяти вызывают check() - запрос с истекшим сроком или прерванный поток
+ * прекращает работу с DeadlineExceededException. Вне запроса срока нет и check() ничего не делает.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void set(Long deadlineNanos) {
+        if (deadlineNanos == null) {
+            DEADLINE.remove();
+        } else {
+            DEADLINE.set(deadlineNanos);
+        }
+    }
+
+    public static Long get() {
+        return DEADLINE.get();
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    // сколько осталось до срока; Long.MAX_VALUE, если срока нет
+    public static long remainingNanos() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    public static void check() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new DeadlineExceededException("Request cancelled");
+        }
+        if (remainingNanos() <= 0) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+    }
+
+    // задача, выполняющаяся в другом потоке с тем же сроком
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Long deadline = DEADLINE.get();
+        return () -> {
+            set(deadline);
+            try {
+                check();
+                return task.call();
+            } finally {
+                clear();
+            }
+        };
+    }
+
+    // срок в секундах для Statement.setQueryTimeout (округление вверх, 0 - без ограничения)
+    static int remainingQueryTimeoutSeconds() {
+        long remaining = remainingNanos();
+        if (remaining == Long.MAX_VALUE) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+    }
+}
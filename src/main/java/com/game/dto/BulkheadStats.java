@@ -0,0 +1,70 @@
+package com.game.dto;
+
+/**
+ * Состояние пула выполнения (bulkhead) одного класса нагрузки.
+ * utilization - доля занятых потоков, averageQueueMillis - среднее время ожидания задачи в очереди.
+ */
+public class BulkheadStats {
+
+    private Integer threads;
+    private Integer active;
+    private Integer queued;
+    private Integer queueCapacity;
+    private Double utilization;
+    private Long completed;
+    private Long rejected;
+    private Long timedOut;
+    private Double averageQueueMillis;
+
+    public BulkheadStats() {
+    }
+
+    public BulkheadStats(Integer threads, Integer active, Integer queued, Integer queueCapacity, Long completed,
+                         Long rejected, Long timedOut, Double averageQueueMillis) {
+        this.threads = threads;
+        this.active = active;
+        this.queued = queued;
+        this.queueCapacity = queueCapacity;
+        this.utilization = threads == 0 ? 0.0 : (double) active / threads;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.timedOut = timedOut;
+        this.averageQueueMillis = averageQueueMillis;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public Integer getActive() {
+        return active;
+    }
+
+    public Integer getQueued() {
+        return queued;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public Double getUtilization() {
+        return utilization;
+    }
+
+    public Long getCompleted() {
+        return completed;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public Long getTimedOut() {
+        return timedOut;
+    }
+
+    public Double getAverageQueueMillis() {
+        return averageQueueMillis;
+    }
+}
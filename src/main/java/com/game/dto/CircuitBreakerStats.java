@@ -0,0 +1,65 @@
+package com.game.dto;
+
+/**
+ * Состояние автомата обращений к БД: текущее состояние, счетчики с запуска
+ * (запросы, отказы без обращения к БД, размыкания, ответы из последних известных данных)
+ * и содержимое скользящего окна.
+ */
+public class CircuitBreakerStats {
+
+    private String state;
+    private Long calls;
+    private Long rejected;
+    private Long opened;
+    private Long staleResponses;
+    private Integer windowCalls;
+    private Integer windowFailures;
+    private Integer windowSlowCalls;
+
+    public CircuitBreakerStats() {
+    }
+
+    public CircuitBreakerStats(String state, Long calls, Long rejected, Long opened, Long staleResponses,
+                               Integer windowCalls, Integer windowFailures, Integer windowSlowCalls) {
+        this.state = state;
+        this.calls = calls;
+        this.rejected = rejected;
+        this.opened = opened;
+        this.staleResponses = staleResponses;
+        this.windowCalls = windowCalls;
+        this.windowFailures = windowFailures;
+        this.windowSlowCalls = windowSlowCalls;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public Long getCalls() {
+        return calls;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public Long getOpened() {
+        return opened;
+    }
+
+    public Long getStaleResponses() {
+        return staleResponses;
+    }
+
+    public Integer getWindowCalls() {
+        return windowCalls;
+    }
+
+    public Integer getWindowFailures() {
+        return windowFailures;
+    }
+
+    public Integer getWindowSlowCalls() {
+        return windowSlowCalls;
+    }
+}
@@ -0,0 +1,39 @@
+package com.game.dto;
+
+/**
+ * Статистика объединения одинаковых одновременных чтений:
+ * сколько раз чтение действительно выполнялось и сколько вызовов получили чужой результат.
+ */
+public class CoalescingStats {
+
+    private Long listExecutions;
+    private Long listCoalesced;
+    private Long findExecutions;
+    private Long findCoalesced;
+
+    public CoalescingStats() {
+    }
+
+    public CoalescingStats(Long listExecutions, Long listCoalesced, Long findExecutions, Long findCoalesced) {
+        this.listExecutions = listExecutions;
+        this.listCoalesced = listCoalesced;
+        this.findExecutions = findExecutions;
+        this.findCoalesced = findCoalesced;
+    }
+
+    public Long getListExecutions() {
+        return listExecutions;
+    }
+
+    public Long getListCoalesced() {
+        return listCoalesced;
+    }
+
+    public Long getFindExecutions() {
+        return findExecutions;
+    }
+
+    public Long getFindCoalesced() {
+        return findCoalesced;
+    }
+}
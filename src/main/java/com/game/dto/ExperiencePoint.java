@@ -0,0 +1,26 @@
+package com.game.dto;
+
+/**
+ * Точка истории опыта игрока: момент изменения (мс) и опыт после него.
+ */
+public class ExperiencePoint {
+
+    private Long timestamp;
+    private Integer experience;
+
+    public ExperiencePoint() {
+    }
+
+    public ExperiencePoint(Long timestamp, Integer experience) {
+        this.timestamp = timestamp;
+        this.experience = experience;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public Integer getExperience() {
+        return experience;
+    }
+}
@@ -0,0 +1,52 @@
+package com.game.dto;
+
+/**
+ * Свертка истории опыта игрока за интервал [start, start + step):
+ * количество точек, первое и последнее значения, минимум и максимум.
+ * Прирост за интервал - last - first.
+ */
+public class ExperienceRollup {
+
+    private Long start;
+    private Integer points;
+    private Integer first;
+    private Integer last;
+    private Integer min;
+    private Integer max;
+
+    public ExperienceRollup() {
+    }
+
+    public ExperienceRollup(Long start, Integer points, Integer first, Integer last, Integer min, Integer max) {
+        this.start = start;
+        this.points = points;
+        this.first = first;
+        this.last = last;
+        this.min = min;
+        this.max = max;
+    }
+
+    public Long getStart() {
+        return start;
+    }
+
+    public Integer getPoints() {
+        return points;
+    }
+
+    public Integer getFirst() {
+        return first;
+    }
+
+    public Integer getLast() {
+        return last;
+    }
+
+    public Integer getMin() {
+        return min;
+    }
+
+    public Integer getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,72 @@
+package com.game.dto;
+
+/**
+ * Состояние фильтра Блума по id игроков.
+ * expectedFalsePositiveRate - оценка по заполнению фильтра, observedFalsePositiveRate - доля ответов
+ * "может быть", после которых игрок не нашелся в БД (включая удаленных игроков).
+ */
+public class IdFilterStats {
+
+    private Integer layers;
+    private Long bits;
+    private Integer ids;
+    private Integer deletedSinceRebuild;
+    private Double expectedFalsePositiveRate;
+    private Long lookups;
+    private Long definiteMisses;
+    private Long falsePositives;
+    private Double observedFalsePositiveRate;
+
+    public IdFilterStats() {
+    }
+
+    public IdFilterStats(Integer layers, Long bits, Integer ids, Integer deletedSinceRebuild,
+                         Double expectedFalsePositiveRate, Long lookups, Long definiteMisses, Long falsePositives,
+                         Double observedFalsePositiveRate) {
+        this.layers = layers;
+        this.bits = bits;
+        this.ids = ids;
+        this.deletedSinceRebuild = deletedSinceRebuild;
+        this.expectedFalsePositiveRate = expectedFalsePositiveRate;
+        this.lookups = lookups;
+        this.definiteMisses = definiteMisses;
+        this.falsePositives = falsePositives;
+        this.observedFalsePositiveRate = observedFalsePositiveRate;
+    }
+
+    public Integer getLayers() {
+        return layers;
+    }
+
+    public Long getBits() {
+        return bits;
+    }
+
+    public Integer getIds() {
+        return ids;
+    }
+
+    public Integer getDeletedSinceRebuild() {
+        return deletedSinceRebuild;
+    }
+
+    public Double getExpectedFalsePositiveRate() {
+        return expectedFalsePositiveRate;
+    }
+
+    public Long getLookups() {
+        return lookups;
+    }
+
+    public Long getDefiniteMisses() {
+        return definiteMisses;
+    }
+
+    public Long getFalsePositives() {
+        return falsePositives;
+    }
+
+    public Double getObservedFalsePositiveRate() {
+        return observedFalsePositiveRate;
+    }
+}
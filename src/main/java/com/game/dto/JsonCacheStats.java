@@ -0,0 +1,33 @@
+package com.game.dto;
+
+/**
+ * Статистика кэша сериализованного JSON игроков: сколько фрагментов отдано готовыми,
+ * сколько раз игрока пришлось сериализовать заново и сколько фрагментов сейчас в кэше.
+ */
+public class JsonCacheStats {
+
+    private Long hits;
+    private Long misses;
+    private Integer entries;
+
+    public JsonCacheStats() {
+    }
+
+    public JsonCacheStats(Long hits, Long misses, Integer entries) {
+        this.hits = hits;
+        this.misses = misses;
+        this.entries = entries;
+    }
+
+    public Long getHits() {
+        return hits;
+    }
+
+    public Long getMisses() {
+        return misses;
+    }
+
+    public Integer getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,65 @@
+package com.game.dto;
+
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.util.Map;
+
+/**
+ * Аналитика по срезу игроков (вся таблица, раса, профессия или пара раса+профессия):
+ * опыт и уровень на квантилях (ключ - квантиль) и оценка количества различных слов в титулах.
+ * Квантили точные; количество слов - оценка HyperLogLog с относительной стандартной ошибкой
+ * distinctTitleWordsError (около 95% оценок отличаются от точного значения не больше чем на две ошибки).
+ */
+public class PlayerAnalytics {
+
+    private Race race;
+    private Profession profession;
+    private Integer players;
+    private Map<String, Integer> experience;
+    private Map<String, Integer> level;
+    private Long distinctTitleWords;
+    private Double distinctTitleWordsError;
+
+    public PlayerAnalytics() {
+    }
+
+    public PlayerAnalytics(Race race, Profession profession, Integer players, Map<String, Integer> experience,
+                           Map<String, Integer> level, Long distinctTitleWords, Double distinctTitleWordsError) {
+        this.race = race;
+        this.profession = profession;
+        this.players = players;
+        this.experience = experience;
+        this.level = level;
+        this.distinctTitleWords = distinctTitleWords;
+        this.distinctTitleWordsError = distinctTitleWordsError;
+    }
+
+    public Race getRace() {
+        return race;
+    }
+
+    public Profession getProfession() {
+        return profession;
+    }
+
+    public Integer getPlayers() {
+        return players;
+    }
+
+    public Map<String, Integer> getExperience() {
+        return experience;
+    }
+
+    public Map<String, Integer> getLevel() {
+        return level;
+    }
+
+    public Long getDistinctTitleWords() {
+        return distinctTitleWords;
+    }
+
+    public Double getDistinctTitleWordsError() {
+        return distinctTitleWordsError;
+    }
+}
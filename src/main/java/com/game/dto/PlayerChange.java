@@ -0,0 +1,41 @@
+package com.game.dto;
+
+import java.util.Map;
+
+/**
+ * Запись журнала изменений игроков.
+ * op - CREATE, UPDATE или DELETE; changes - новые значения изменившихся полей (для DELETE пусто).
+ */
+public class PlayerChange {
+
+    private Long seq;
+    private String op;
+    private Long playerId;
+    private Map<String, Object> changes;
+
+    public PlayerChange() {
+    }
+
+    public PlayerChange(Long seq, String op, Long playerId, Map<String, Object> changes) {
+        this.seq = seq;
+        this.op = op;
+        this.playerId = playerId;
+        this.changes = changes;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,82 @@
+package com.game.dto;
+
+/**
+ * Место игрока в рейтинге по опыту.
+ * rank - место среди всех игроков, raceRank и professionRank - среди игроков той же расы и профессии.
+ * percentile - процент игроков, у которых опыт меньше.
+ */
+public class PlayerRank {
+
+    private Long id;
+    private Integer experience;
+    private Integer rank;
+    private Integer total;
+    private Integer raceRank;
+    private Integer raceTotal;
+    private Integer professionRank;
+    private Integer professionTotal;
+    private Double percentile;
+
+    public PlayerRank() {
+    }
+
+    public PlayerRank(Long id, Integer experience) {
+        this.id = id;
+        this.experience = experience;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getExperience() {
+        return experience;
+    }
+
+    public Integer getRank() {
+        return rank;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setRank(Integer rank, Integer total) {
+        this.rank = rank;
+        this.total = total;
+    }
+
+    public Integer getRaceRank() {
+        return raceRank;
+    }
+
+    public Integer getRaceTotal() {
+        return raceTotal;
+    }
+
+    public void setRaceRank(Integer raceRank, Integer raceTotal) {
+        this.raceRank = raceRank;
+        this.raceTotal = raceTotal;
+    }
+
+    public Integer getProfessionRank() {
+        return professionRank;
+    }
+
+    public Integer getProfessionTotal() {
+        return professionTotal;
+    }
+
+    public void setProfessionRank(Integer professionRank, Integer professionTotal) {
+        this.professionRank = professionRank;
+        this.professionTotal = professionTotal;
+    }
+
+    public Double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(Double percentile) {
+        this.percentile = percentile;
+    }
+}
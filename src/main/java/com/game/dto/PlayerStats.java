@@ -0,0 +1,44 @@
+package com.game.dto;
+
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.util.Map;
+
+/**
+ * Сводная статистика по игрокам: общее количество, количество забаненных
+ * и распределение по расам и профессиям.
+ */
+public class PlayerStats {
+
+    private Integer total;
+    private Integer banned;
+    private Map<Race, Integer> byRace;
+    private Map<Profession, Integer> byProfession;
+
+    public PlayerStats() {
+    }
+
+    public PlayerStats(Integer total, Integer banned, Map<Race, Integer> byRace, Map<Profession, Integer> byProfession) {
+        this.total = total;
+        this.banned = banned;
+        this.byRace = byRace;
+        this.byProfession = byProfession;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public Integer getBanned() {
+        return banned;
+    }
+
+    public Map<Race, Integer> getByRace() {
+        return byRace;
+    }
+
+    public Map<Profession, Integer> getByProfession() {
+        return byProfession;
+    }
+}
@@ -1,5 +1,7 @@
 package com.game.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
 import java.util.Date;
 
@@ -65,6 +67,30 @@ public class Player {
     @Column(name = "banned")
     private Boolean banned;
 
+    // время последнего изменения строки - заполняет сама БД, в JSON не отдается
+    @JsonIgnore
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+
+    public Player() {
+    }
+
+    // для проекций чтения (select new Player(...)): такой объект не попадает в контекст персистентности
+    public Player(Long id, String name, String title, Race race, Profession profession, Integer experience,
+                  Integer level, Integer untilNextLevel, Date birthday, Boolean banned) {
+        this.id = id;
+        this.name = name;
+        this.title = title;
+        this.race = race;
+        this.profession = profession;
+        this.experience = experience;
+        this.level = level;
+        this.untilNextLevel = untilNextLevel;
+        this.birthday = birthday;
+        this.banned = banned;
+    }
+
     public Long getId() {
         return id;
     }
@@ -144,4 +170,12 @@ public class Player {
     public void setBanned(Boolean banned) {
         this.banned = banned;
     }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
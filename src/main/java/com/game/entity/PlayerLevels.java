@@ -0,0 +1,29 @@
+package com.game.entity;
+
+/**
+ * Формулы уровня персонажа.
+ * Используются везде, где меняется опыт, чтобы level и untilNextLevel всегда считались одинаково.
+ */
+public final class PlayerLevels {
+
+    // Опыт персонажа. Диапазон значений 0..10,000,000
+    public static final int MAX_EXPERIENCE = 10000000;
+
+    private PlayerLevels() {
+    }
+
+    // текущий уровень персонажа
+    public static int level(int experience) {
+        return (int) ((Math.sqrt(2500 + 200 * experience) - 50) / 100);
+    }
+
+    // опыт необходимый для достижения следующего уровня
+    public static int untilNextLevel(int level, int experience) {
+        return 50 * (level + 1) * (level + 2) - experience;
+    }
+
+    // опыт после начисления delta, ограниченный диапазоном 0..MAX_EXPERIENCE
+    public static int addExperience(int experience, long delta) {
+        return (int) Math.max(0, Math.min(MAX_EXPERIENCE, experience + delta));
+    }
+}
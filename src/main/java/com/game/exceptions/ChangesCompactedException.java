@@ -0,0 +1,16 @@
+package com.game.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// ошибка 410 (Gone)
+// запрошенные изменения уже удалены из журнала - клиенту нужна полная пересинхронизация
+@ResponseStatus(HttpStatus.GONE)
+public class ChangesCompactedException extends RuntimeException {
+
+    public ChangesCompactedException() {}
+
+    public ChangesCompactedException(String message) {
+        super(message);
+    }
+}
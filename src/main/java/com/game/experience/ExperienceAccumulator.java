@@ -0,0 +1,86 @@
+package com.game.experience;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Накопитель начислений опыта.
+ *
+ * Начисления складываются в счетчик игрока без блокировок (CAS по AtomicLong в ConcurrentHashMap,
+ * счетчики разных игроков распределены по независимым корзинам таблицы), а ExperienceFlusher
+ * периодически забирает накопленные суммы и записывает их одним пакетом.
+ *
+ * Счетчик, простоявший пустым целый цикл сброса, удаляется: он помечается RETIRED,
+ * и писатель, наткнувшийся на такую метку, создает новый счетчик - так ни одно начисление не теряется.
+ */
+@Component
+public class ExperienceAccumulator {
+
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<Long, AtomicLong> pending = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Void>> nextFlush = new AtomicReference<>(new CompletableFuture<>());
+
+    /**
+     * Добавляет начисление. Возвращает future, которое завершится, когда оно будет записано в БД.
+     */
+    public CompletableFuture<Void> add(Long id, long delta) {
+        while (true) {
+            AtomicLong counter = pending.computeIfAbsent(id, key -> new AtomicLong());
+            long value = counter.get();
+            if (value == RETIRED) {
+                pending.remove(id, counter);
+                continue;
+            }
+            if (counter.compareAndSet(value, value + delta)) {
+                // future читается после добавления: если это future текущего цикла, начисление в него попадет
+                return nextFlush.get();
+            }
+        }
+    }
+
+    /**
+     * Забирает накопленные начисления и открывает новый цикл.
+     * Возвращает future закрытого цикла - его нужно завершить после записи (или при ошибке вернуть начисления).
+     */
+    CompletableFuture<Void> drainInto(Map<Long, Long> deltas) {
+        CompletableFuture<Void> flush = nextFlush.getAndSet(new CompletableFuture<>());
+        pending.forEach((id, counter) -> {
+            long value = counter.getAndSet(0);
+            if (value != 0) {
+                deltas.put(id, value);
+            } else if (counter.compareAndSet(0, RETIRED)) {
+                pending.remove(id, counter);
+            }
+        });
+        return flush;
+    }
+
+    // возвращает начисления, которые не удалось записать
+    void restore(Map<Long, Long> deltas) {
+        deltas.forEach(this::add);
+    }
+
+    // future следующего сброса
+    CompletableFuture<Void> nextFlush() {
+        return nextFlush.get();
+    }
+
+    // сумма еще не записанных начислений по игрокам (для диагностики)
+    public Map<Long, Long> pendingSnapshot() {
+        Map<Long, Long> snapshot = new HashMap<>();
+        pending.forEach((id, counter) -> {
+            long value = counter.get();
+            if (value != 0 && value != RETIRED) {
+                snapshot.put(id, value);
+            }
+        });
+        return snapshot;
+    }
+}
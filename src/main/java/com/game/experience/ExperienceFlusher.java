@@ -0,0 +1,143 @@
+package com.game.experience;
+
+import com.game.service.PlayerService;
+import com.game.writebehind.PlayerWriteBehind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически сбрасывает накопленные начисления опыта в БД пакетами не больше maxBatch игроков.
+ * Каждый пакет - одна транзакция PlayerService.applyExperience. Если пакет не записался,
+ * его начисления записываются по одному, чтобы одно плохое начисление не держало остальные.
+ * Не записавшиеся начисления возвращаются в накопитель и уйдут со следующим сбросом;
+ * после player.experience.max-attempts неудачных сбросов подряд начисление игрока
+ * откладывается в dead letters (getDeadLetters) и больше не повторяется.
+ *
+ * Забрав начисления, сброс сначала записывает незаписанные изменения write-behind: новое значение experience,
+ * заданное клиентом раньше, чем начисление было забрано, попадает в БД до начисления и не затирает его.
+ * Если write-behind не записался, начисления возвращаются в накопитель.
+ */
+@Component
+public class ExperienceFlusher implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExperienceFlusher.class);
+
+    private final ExperienceAccumulator accumulator;
+    private final PlayerService playerService;
+    private final PlayerWriteBehind writeBehind;
+    private final int maxBatch;
+    private final int maxAttempts;
+    private final ScheduledExecutorService scheduler;
+    // неудачные сбросы подряд по игрокам и отложенные начисления; меняются только под блокировкой flush
+    private final Map<Long, Integer> attempts = new HashMap<>();
+    private final Map<Long, Long> deadLetters = new HashMap<>();
+
+    @Autowired
+    public ExperienceFlusher(ExperienceAccumulator accumulator, PlayerService playerService,
+                             PlayerWriteBehind writeBehind,
+                             @Value("${player.experience.flush-interval-ms:200}") long flushIntervalMillis,
+                             @Value("${player.experience.max-batch:1000}") int maxBatch,
+                             @Value("${player.experience.max-attempts:5}") int maxAttempts) {
+        this.accumulator = accumulator;
+        this.playerService = playerService;
+        this.writeBehind = writeBehind;
+        this.maxBatch = maxBatch;
+        this.maxAttempts = maxAttempts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "experience-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // сбрасывает все накопленное; вызывается по расписанию и при остановке
+    public synchronized void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        CompletableFuture<Void> flushed = accumulator.drainInto(deltas);
+        if (deltas.isEmpty()) {
+            flushed.complete(null);
+            return;
+        }
+
+        // изменения, принятые до того, как начисления забраны, должны попасть в БД раньше них
+        if (writeBehind.hasPending() && !writeBehind.flush()) {
+            retryLater(deltas, flushed);
+            return;
+        }
+
+        Map<Long, Long> failed = new HashMap<>();
+        Map<Long, Long> batch = new HashMap<>();
+        Iterator<Map.Entry<Long, Long>> iterator = deltas.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> delta = iterator.next();
+            batch.put(delta.getKey(), delta.getValue());
+            if (batch.size() == maxBatch || !iterator.hasNext()) {
+                apply(batch, failed);
+                batch = new HashMap<>();
+            }
+        }
+
+        Map<Long, Long> retry = new HashMap<>();
+        failed.forEach((id, delta) -> {
+            int attempt = attempts.merge(id, 1, Integer::sum);
+            if (attempt < maxAttempts) {
+                retry.put(id, delta);
+            } else {
+                log.error("Giving up experience delta {} for player {} after {} attempts", delta, id, attempt);
+                attempts.remove(id);
+                deadLetters.merge(id, delta, Long::sum);
+            }
+        });
+
+        if (retry.isEmpty()) {
+            flushed.complete(null);
+        } else {
+            retryLater(retry, flushed);
+        }
+    }
+
+    // ожидающие этого сброса дождутся следующего, в который попадут возвращенные начисления
+    private void retryLater(Map<Long, Long> deltas, CompletableFuture<Void> flushed) {
+        accumulator.restore(deltas);
+        accumulator.nextFlush().whenComplete((ignored, error) -> flushed.complete(null));
+    }
+
+    // записывает пакет; если он не записался - каждое начисление отдельно, не записавшиеся попадают в failed
+    private void apply(Map<Long, Long> batch, Map<Long, Long> failed) {
+        try {
+            playerService.applyExperience(batch);
+            attempts.keySet().removeAll(batch.keySet());
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.warn("Failed to flush experience for player {}, will retry", batch.keySet(), e);
+                failed.putAll(batch);
+                return;
+            }
+            log.warn("Failed to flush experience for {} players, retrying one by one", batch.size(), e);
+        }
+        batch.forEach((id, delta) -> apply(Collections.singletonMap(id, delta), failed));
+    }
+
+    // начисления, от записи которых отказались после max-attempts попыток (id -> сумма)
+    public synchronized Map<Long, Long> getDeadLetters() {
+        return new HashMap<>(deadLetters);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        flush();
+    }
+}
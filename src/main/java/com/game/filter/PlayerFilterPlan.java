@@ -0,0 +1,274 @@
+package com.game.filter;
+
+import com.game.deadline.RequestDeadline;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Скомпилированный план фильтрации игроков.
+ *
+ * PlayerFilter один раз превращается в цепочку проверок: отсутствующие критерии в нее не попадают,
+ * границы диапазонов заранее переводятся в примитивы (даты - в миллисекунды),
+ * а порядок выбран так, чтобы дешевые и наиболее отсекающие проверки шли первыми.
+ * На каждую строку ничего не создается. Один и тот же план используется и для списка, и для подсчета.
+ *
+ * Большие списки в памяти просматриваются параллельно в ForkJoinPool.commonPool(): список делится
+ * на непрерывные куски, каждый кусок фильтруется в свой буфер, буферы склеиваются по порядку,
+ * так что результат совпадает с последовательным проходом. Количество кусков растет с размером списка,
+ * а маленькие списки (меньше PARALLEL_THRESHOLD) фильтруются в вызывающем потоке без накладных расходов.
+ */
+public final class PlayerFilterPlan {
+
+    private static final int CHECK_INTERVAL = 1023;
+
+    // с какого размера списка просмотр распараллеливается
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+    // минимальный кусок списка на одну задачу
+    static final int MIN_CHUNK = 1 << 12;
+    // кусков на поток пула - для выравнивания нагрузки между потоками
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Predicate<Player>[] criteria;
+
+    private PlayerFilterPlan(Predicate<Player>[] criteria) {
+        this.criteria = criteria;
+    }
+
+    public static PlayerFilterPlan compile(PlayerFilter filter) {
+        List<Predicate<Player>> criteria = new ArrayList<>();
+
+        // сравнения enum и boolean - самые дешевые и отсекают большую часть строк
+        Profession profession = filter.getProfession();
+        if (profession != null) {
+            criteria.add(player -> player.getProfession() == profession);
+        }
+        Race race = filter.getRace();
+        if (race != null) {
+            criteria.add(player -> player.getRace() == race);
+        }
+        Boolean banned = filter.getBanned();
+        if (banned != null) {
+            boolean expected = banned;
+            criteria.add(player -> player.getBanned() != null && player.getBanned() == expected);
+        }
+
+        // диапазоны: нижняя и верхняя граница проверяются одним условием
+        if (filter.getMinLevel() != null || filter.getMaxLevel() != null) {
+            int min = filter.getMinLevel() == null ? Integer.MIN_VALUE : filter.getMinLevel();
+            int max = filter.getMaxLevel() == null ? Integer.MAX_VALUE : filter.getMaxLevel();
+            criteria.add(player -> {
+                Integer level = player.getLevel();
+                return level != null && level >= min && level <= max;
+            });
+        }
+        if (filter.getMinExperience() != null || filter.getMaxExperience() != null) {
+            int min = filter.getMinExperience() == null ? Integer.MIN_VALUE : filter.getMinExperience();
+            int max = filter.getMaxExperience() == null ? Integer.MAX_VALUE : filter.getMaxExperience();
+            criteria.add(player -> {
+                Integer experience = player.getExperience();
+                return experience != null && experience >= min && experience <= max;
+            });
+        }
+        if (filter.getAfter() != null || filter.getBefore() != null) {
+            long after = filter.getAfter() == null ? Long.MIN_VALUE : filter.getAfter();
+            long before = filter.getBefore() == null ? Long.MAX_VALUE : filter.getBefore();
+            criteria.add(player -> {
+                if (player.getBirthday() == null) {
+                    return false;
+                }
+                long birthday = player.getBirthday().getTime();
+                return birthday >= after && birthday <= before;
+            });
+        }
+
+        // поиск подстроки - самая дорогая проверка, поэтому последняя
+        String name = filter.getName();
+        if (name != null) {
+            criteria.add(player -> player.getName() != null && player.getName().contains(name));
+        }
+        String title = filter.getTitle();
+        if (title != null) {
+            criteria.add(player -> player.getTitle() != null && player.getTitle().contains(title));
+        }
+
+        return new PlayerFilterPlan(toArray(criteria));
+    }
+
+    // массив, а не список: matches вызывается для каждой строки скана
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate<Player>[] toArray(List<Predicate<Player>> criteria) {
+        return criteria.toArray(new Predicate[0]);
+    }
+
+    // план без критериев пропускает всех игроков
+    public boolean isEmpty() {
+        return criteria.length == 0;
+    }
+
+    public boolean matches(Player player) {
+        for (Predicate<Player> criterion : criteria) {
+            if (!criterion.test(player)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // длинные проходы проверяют срок запроса раз в CHECK_INTERVAL игроков
+    public List<Player> filter(Iterable<Player> players) {
+        return filter(players, chunksFor(players));
+    }
+
+    public int count(Iterable<Player> players) {
+        return count(players, chunksFor(players));
+    }
+
+    // просмотр с заданным числом кусков (chunks > 1 - только для List с произвольным доступом); открыт для тестов
+    List<Player> filter(Iterable<Player> players, int chunks) {
+        if (chunks > 1) {
+            return scanParallel((List<Player>) players, chunks, true).merge();
+        }
+
+        List<Player> result = new ArrayList<>();
+        int scanned = 0;
+        for (Player player : players) {
+            if ((++scanned & CHECK_INTERVAL) == 0) {
+                RequestDeadline.check();
+            }
+            if (matches(player)) {
+                result.add(player);
+            }
+        }
+        return result;
+    }
+
+    int count(Iterable<Player> players, int chunks) {
+        if (chunks > 1) {
+            return scanParallel((List<Player>) players, chunks, false).total();
+        }
+
+        int count = 0;
+        int scanned = 0;
+        for (Player player : players) {
+            if ((++scanned & CHECK_INTERVAL) == 0) {
+                RequestDeadline.check();
+            }
+            if (matches(player)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // на сколько кусков делить просмотр; 1 - просматривать в вызывающем потоке
+    private static int chunksFor(Iterable<Player> players) {
+        if (!(players instanceof List) || !(players instanceof RandomAccess)) {
+            return 1;
+        }
+        int size = ((List<?>) players).size();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (size < PARALLEL_THRESHOLD || parallelism < 2) {
+            return 1;
+        }
+        return Math.min(size / MIN_CHUNK, parallelism * CHUNKS_PER_THREAD);
+    }
+
+    private ChunkedScan scanParallel(List<Player> players, int chunks, boolean collect) {
+        ChunkedScan scan = new ChunkedScan(players, chunks, collect, RequestDeadline.get());
+        ForkJoinPool.commonPool().invoke(scan.task(0, chunks));
+        return scan;
+    }
+
+    /**
+     * Параллельный просмотр списка по кускам. Каждый кусок пишет только в свою ячейку counts и buffers,
+     * поэтому задачам не нужна синхронизация; результаты читаются после invoke().
+     */
+    private final class ChunkedScan {
+
+        private final List<Player> players;
+        private final int chunkSize;
+        private final int[] counts;
+        private final List<List<Player>> buffers;
+        private final Long deadline;
+
+        ChunkedScan(List<Player> players, int chunks, boolean collect, Long deadline) {
+            this.players = players;
+            this.chunkSize = (players.size() + chunks - 1) / chunks;
+            this.counts = new int[chunks];
+            // список заполнен заранее: куски только заменяют свои ячейки через set, структура не меняется
+            this.buffers = collect ? new ArrayList<>(Collections.nCopies(chunks, null)) : null;
+            this.deadline = deadline;
+        }
+
+        RecursiveAction task(int fromChunk, int toChunk) {
+            return new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    if (toChunk - fromChunk == 1) {
+                        scanChunk(fromChunk);
+                        return;
+                    }
+                    int middle = (fromChunk + toChunk) >>> 1;
+                    invokeAll(task(fromChunk, middle), task(middle, toChunk));
+                }
+            };
+        }
+
+        // поток пула получает срок запроса на время куска; прежнее значение восстанавливается,
+        // так как кусок может выполнить и сам вызывающий поток
+        private void scanChunk(int chunk) {
+            Long previous = RequestDeadline.get();
+            RequestDeadline.set(deadline);
+            try {
+                int from = chunk * chunkSize;
+                int to = Math.min(players.size(), from + chunkSize);
+                List<Player> buffer = buffers == null ? null : new ArrayList<>();
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    if ((i & CHECK_INTERVAL) == 0) {
+                        RequestDeadline.check();
+                    }
+                    Player player = players.get(i);
+                    if (matches(player)) {
+                        count++;
+                        if (buffer != null) {
+                            buffer.add(player);
+                        }
+                    }
+                }
+                counts[chunk] = count;
+                if (buffers != null) {
+                    buffers.set(chunk, buffer);
+                }
+            } finally {
+                RequestDeadline.set(previous);
+            }
+        }
+
+        int total() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        // склеиваем буферы кусков по порядку в список точного размера
+        List<Player> merge() {
+            List<Player> result = new ArrayList<>(total());
+            for (List<Player> buffer : buffers) {
+                result.addAll(buffer);
+            }
+            return result;
+        }
+    }
+}
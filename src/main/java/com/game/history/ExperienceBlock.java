@@ -0,0 +1,117 @@
+package com.game.history;
+
+import java.util.Arrays;
+
+/**
+ * Сжатый блок точек истории опыта одного игрока (время в мс, опыт).
+ *
+ * Первая точка хранится целиком, дальше для каждой точки пишутся два числа в формате varint (zigzag):
+ * разность интервалов между точками (delta-of-delta) и изменение опыта. При обновлениях с примерно
+ * равным шагом delta-of-delta близка к нулю, а прирост опыта невелик, так что точка обычно занимает 2-4 байта.
+ * В блоке не больше MAX_POINTS точек; заполненный блок больше не меняется.
+ *
+ * Класс не потокобезопасен - синхронизация остается на ExperienceSeries.
+ */
+final class ExperienceBlock {
+
+    static final int MAX_POINTS = 256;
+
+    interface PointConsumer {
+        void accept(long timestamp, int experience);
+    }
+
+    final long start;
+    private byte[] data = new byte[32];
+    private int size;
+    private int points;
+    private long lastTimestamp;
+    private long lastInterval;
+    private int lastExperience;
+
+    ExperienceBlock(long timestamp, int experience) {
+        this.start = timestamp;
+        writeVarLong(timestamp);
+        writeVarLong(experience);
+        points = 1;
+        lastTimestamp = timestamp;
+        lastExperience = experience;
+    }
+
+    boolean isFull() {
+        return points >= MAX_POINTS;
+    }
+
+    int getPoints() {
+        return points;
+    }
+
+    long getEnd() {
+        return lastTimestamp;
+    }
+
+    int getLastExperience() {
+        return lastExperience;
+    }
+
+    // время не может идти назад: при переводе часов точка получает время предыдущей
+    void append(long timestamp, int experience) {
+        long time = Math.max(timestamp, lastTimestamp);
+        long interval = time - lastTimestamp;
+        writeVarLong(zigzag(interval - lastInterval));
+        writeVarLong(zigzag(experience - (long) lastExperience));
+        points++;
+        lastTimestamp = time;
+        lastInterval = interval;
+        lastExperience = experience;
+    }
+
+    // закодированные байты блока (копия)
+    byte[] toBytes() {
+        return Arrays.copyOf(data, size);
+    }
+
+    static void decode(byte[] data, PointConsumer consumer) {
+        int[] position = {0};
+        long timestamp = readVarLong(data, position);
+        long experience = readVarLong(data, position);
+        consumer.accept(timestamp, (int) experience);
+        long interval = 0;
+        while (position[0] < data.length) {
+            interval += unzigzag(readVarLong(data, position));
+            experience += unzigzag(readVarLong(data, position));
+            timestamp += interval;
+            consumer.accept(timestamp, (int) experience);
+        }
+    }
+
+    private void writeVarLong(long value) {
+        if (size + 10 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,236 @@
+package com.game.history;
+
+import com.game.dto.ExperiencePoint;
+import com.game.dto.ExperienceRollup;
+import com.game.entity.Player;
+import com.game.service.PlayerStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * История опыта игроков.
+ *
+ * Каждое сохранение игрока с изменившимся опытом добавляет точку (время, опыт) в хвост его серии в памяти -
+ * это дописывание нескольких байт в открытый ExperienceBlock. Фоновый поток раз в
+ * player.history.flush-interval-ms записывает измененные блоки в player_experience_history
+ * (открытый блок перезаписывается, пока не заполнится). Серии, в которых давно не было точек,
+ * убираются из памяти - следующая точка начнет новый блок. Блоки старше player.history.retention-days удаляются.
+ *
+ * Незаписанный хвост при падении теряется (не больше одного интервала сброса).
+ */
+@Component
+public class ExperienceHistory implements PlayerStateListener, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExperienceHistory.class);
+
+    private static final String DELETE_BLOCK = "DELETE FROM player_experience_history WHERE player_id = ? AND block_start = ?";
+    private static final String INSERT_BLOCK = "INSERT INTO player_experience_history " +
+            "(player_id, block_start, block_end, points, data) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_PLAYER = "DELETE FROM player_experience_history WHERE player_id = ?";
+    private static final String SELECT_RANGE = "SELECT block_start, data FROM player_experience_history " +
+            "WHERE player_id = ? AND block_end >= ? AND block_start <= ? ORDER BY block_start";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long idleMillis;
+    private final long retentionMillis;
+    private final long compactIntervalMillis;
+    private final Map<Long, ExperienceSeries> series = new ConcurrentHashMap<>();
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private long lastCompact = System.currentTimeMillis();
+
+    @Autowired
+    public ExperienceHistory(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             @Value("${player.history.flush-interval-ms:1000}") long flushIntervalMillis,
+                             @Value("${player.history.idle-seconds:600}") long idleSeconds,
+                             @Value("${player.history.retention-days:365}") long retentionDays,
+                             @Value("${player.history.compact-interval-seconds:3600}") long compactIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.compactIntervalMillis = TimeUnit.SECONDS.toMillis(compactIntervalSeconds);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "experience-history-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // таблица игроков пересоздана: незаписанные хвосты относятся к прежним игрокам с теми же id
+    @Override
+    public void reload(Collection<Player> players) {
+        series.clear();
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        if (player.getId() == null || player.getExperience() == null) {
+            return;
+        }
+        // точка добавляется внутри compute, чтобы flush не убрал серию между поиском и добавлением
+        series.compute(player.getId(), (id, tail) -> {
+            ExperienceSeries appended = tail != null ? tail : new ExperienceSeries(id);
+            appended.append(System.currentTimeMillis(), player.getExperience());
+            return appended;
+        });
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        series.remove(id);
+        deleted.add(id);
+    }
+
+    /**
+     * Точки истории игрока с from по to включительно, по возрастанию времени.
+     */
+    public List<ExperiencePoint> points(Long id, long from, long to) {
+        List<ExperiencePoint> points = new ArrayList<>();
+        for (byte[] block : blocks(id, from, to)) {
+            ExperienceBlock.decode(block, (timestamp, experience) -> {
+                if (timestamp >= from && timestamp <= to) {
+                    points.add(new ExperiencePoint(timestamp, experience));
+                }
+            });
+        }
+        return points;
+    }
+
+    /**
+     * Свертки истории игрока по интервалам длиной step, начиная с from. Пустые интервалы пропускаются.
+     */
+    public List<ExperienceRollup> rollup(Long id, long from, long to, long step) {
+        List<ExperienceRollup> rollups = new ArrayList<>();
+        // start, points, first, last, min, max текущего интервала
+        long[] bucket = {Long.MIN_VALUE, 0, 0, 0, 0, 0};
+        for (byte[] block : blocks(id, from, to)) {
+            ExperienceBlock.decode(block, (timestamp, experience) -> {
+                if (timestamp < from || timestamp > to) {
+                    return;
+                }
+                long start = from + (timestamp - from) / step * step;
+                if (start != bucket[0]) {
+                    addRollup(rollups, bucket);
+                    bucket[0] = start;
+                    bucket[1] = 0;
+                    bucket[2] = experience;
+                    bucket[4] = experience;
+                    bucket[5] = experience;
+                }
+                bucket[1]++;
+                bucket[3] = experience;
+                bucket[4] = Math.min(bucket[4], experience);
+                bucket[5] = Math.max(bucket[5], experience);
+            });
+        }
+        addRollup(rollups, bucket);
+        return rollups;
+    }
+
+    private static void addRollup(List<ExperienceRollup> rollups, long[] bucket) {
+        if (bucket[1] > 0) {
+            rollups.add(new ExperienceRollup(bucket[0], (int) bucket[1], (int) bucket[2], (int) bucket[3],
+                    (int) bucket[4], (int) bucket[5]));
+        }
+    }
+
+    // блоки из БД, пересекающие [from, to], по порядку; версии из памяти заменяют записанные
+    private Collection<byte[]> blocks(Long id, long from, long to) {
+        NavigableMap<Long, byte[]> blocks = new TreeMap<>();
+        jdbcTemplate.query(SELECT_RANGE, resultSet -> {
+            blocks.put(resultSet.getLong(1), resultSet.getBytes(2));
+        }, id, from, to);
+        ExperienceSeries tail = series.get(id);
+        if (tail != null) {
+            tail.blocks().forEach(block -> {
+                if (block.end >= from && block.start <= to) {
+                    blocks.put(block.start, block.data);
+                }
+            });
+        }
+        return blocks.values();
+    }
+
+    // записывает измененные блоки; вызывается по расписанию и при остановке
+    public synchronized void flush() {
+        List<Long> removed = new ArrayList<>(deleted);
+        Map<ExperienceSeries, ExperienceSeries.Dirty> dirty = new HashMap<>();
+        series.values().forEach(tail -> {
+            ExperienceSeries.Dirty blocks = tail.dirty();
+            if (blocks != null) {
+                dirty.put(tail, blocks);
+            }
+        });
+
+        if (!removed.isEmpty() || !dirty.isEmpty()) {
+            try {
+                store(removed, dirty.values());
+                deleted.removeAll(removed);
+                dirty.forEach(ExperienceSeries::flushed);
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush experience history for {} players, will retry", dirty.size(), e);
+                return;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        // проверка и удаление атомарны относительно compute в playerSaved - новая точка не потеряется
+        for (Long id : new ArrayList<>(series.keySet())) {
+            series.computeIfPresent(id, (key, tail) -> tail.isIdle(now, idleMillis) ? null : tail);
+        }
+        if (now - lastCompact >= compactIntervalMillis) {
+            lastCompact = now;
+            try {
+                int removedBlocks = jdbcTemplate.update("DELETE FROM player_experience_history WHERE block_end < ?",
+                        now - retentionMillis);
+                log.debug("Removed {} expired experience history blocks", removedBlocks);
+            } catch (RuntimeException e) {
+                log.warn("Failed to remove expired experience history", e);
+            }
+        }
+    }
+
+    private void store(List<Long> removed, Collection<ExperienceSeries.Dirty> dirty) {
+        List<Object[]> players = new ArrayList<>(removed.size());
+        removed.forEach(id -> players.add(new Object[]{id}));
+        List<Object[]> keys = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        dirty.forEach(series -> series.blocks.forEach(block -> {
+            keys.add(new Object[]{block.playerId, block.start});
+            rows.add(new Object[]{block.playerId, block.start, block.end, block.points, block.data});
+        }));
+
+        transactionTemplate.execute(status -> {
+            if (!players.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_PLAYER, players);
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_BLOCK, keys);
+                jdbcTemplate.batchUpdate(INSERT_BLOCK, rows);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        flush();
+    }
+}
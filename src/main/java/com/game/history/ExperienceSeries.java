@@ -0,0 +1,108 @@
+package com.game.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Хвост истории опыта одного игрока в памяти: текущий (открытый) блок и заполненные блоки,
+ * еще не записанные в БД. После записи заполненные блоки из памяти удаляются,
+ * открытый блок остается и при следующем сбросе перезаписывается целиком.
+ */
+final class ExperienceSeries {
+
+    // блок в том виде, в каком он хранится в player_experience_history
+    static final class StoredBlock {
+        final long playerId;
+        final long start;
+        final long end;
+        final int points;
+        final byte[] data;
+
+        StoredBlock(long playerId, long start, long end, int points, byte[] data) {
+            this.playerId = playerId;
+            this.start = start;
+            this.end = end;
+            this.points = points;
+            this.data = data;
+        }
+    }
+
+    // что нужно записать при сбросе и версия серии на этот момент
+    static final class Dirty {
+        final List<StoredBlock> blocks;
+        final int sealed;
+        final long version;
+
+        Dirty(List<StoredBlock> blocks, int sealed, long version) {
+            this.blocks = blocks;
+            this.sealed = sealed;
+            this.version = version;
+        }
+    }
+
+    private final long playerId;
+    private final List<ExperienceBlock> sealed = new ArrayList<>();
+    private ExperienceBlock open;
+    private long version;
+    private long flushedVersion;
+    private long lastAppend;
+
+    ExperienceSeries(long playerId) {
+        this.playerId = playerId;
+    }
+
+    // добавляет точку, если опыт изменился; false - точка не нужна
+    synchronized boolean append(long timestamp, int experience) {
+        if (open != null && open.getLastExperience() == experience) {
+            return false;
+        }
+        if (open == null) {
+            open = new ExperienceBlock(timestamp, experience);
+        } else if (open.isFull()) {
+            sealed.add(open);
+            // начало блока - часть ключа в БД, у следующего блока оно должно быть больше
+            open = new ExperienceBlock(Math.max(timestamp, open.start + 1), experience);
+        } else {
+            open.append(timestamp, experience);
+        }
+        version++;
+        lastAppend = timestamp;
+        return true;
+    }
+
+    // блоки, измененные после последнего сброса; null - записывать нечего
+    synchronized Dirty dirty() {
+        if (version == flushedVersion) {
+            return null;
+        }
+        List<StoredBlock> blocks = new ArrayList<>(sealed.size() + 1);
+        sealed.forEach(block -> blocks.add(stored(block)));
+        blocks.add(stored(open));
+        return new Dirty(blocks, sealed.size(), version);
+    }
+
+    // запись dirty прошла: заполненные блоки больше не нужны в памяти
+    synchronized void flushed(Dirty dirty) {
+        sealed.subList(0, dirty.sealed).clear();
+        flushedVersion = Math.max(flushedVersion, dirty.version);
+    }
+
+    // все блоки из памяти для чтения истории
+    synchronized List<StoredBlock> blocks() {
+        List<StoredBlock> blocks = new ArrayList<>(sealed.size() + 1);
+        sealed.forEach(block -> blocks.add(stored(block)));
+        if (open != null) {
+            blocks.add(stored(open));
+        }
+        return blocks;
+    }
+
+    // серию можно убрать из памяти: все записано и давно не было точек
+    synchronized boolean isIdle(long now, long idleMillis) {
+        return version == flushedVersion && now - lastAppend >= idleMillis;
+    }
+
+    private StoredBlock stored(ExperienceBlock block) {
+        return new StoredBlock(playerId, block.start, block.getEnd(), block.getPoints(), block.toBytes());
+    }
+}
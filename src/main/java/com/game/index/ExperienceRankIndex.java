@@ -0,0 +1,245 @@
+package com.game.index;
+
+import com.game.dto.PlayerRank;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.service.PlayerStateListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг игроков по опыту.
+ *
+ * Держит деревья порядковых статистик по всей таблице, по каждой расе, каждой профессии
+ * и каждой паре раса+профессия. Место игрока и top-N считаются за O(log n) без сортировки таблицы.
+ * Порядок: опыт по убыванию, при равном опыте - id по возрастанию.
+ */
+@Component
+public class ExperienceRankIndex implements PlayerStateListener {
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int cmp = Integer.compare(b.experience, a.experience);
+        return cmp != 0 ? cmp : Long.compare(a.id, b.id);
+    };
+
+    private static final class Entry {
+        final long id;
+        final int experience;
+        final Race race;
+        final Profession profession;
+
+        Entry(long id, int experience, Race race, Profession profession) {
+            this.id = id;
+            this.experience = experience;
+            this.race = race;
+            this.profession = profession;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final OrderStatisticTree<Entry> global = new OrderStatisticTree<>(ORDER);
+    private final Map<Race, OrderStatisticTree<Entry>> byRace = new EnumMap<>(Race.class);
+    private final Map<Profession, OrderStatisticTree<Entry>> byProfession = new EnumMap<>(Profession.class);
+    private final Map<Race, Map<Profession, OrderStatisticTree<Entry>>> byCell = new EnumMap<>(Race.class);
+
+    public ExperienceRankIndex() {
+        for (Race race : Race.values()) {
+            byRace.put(race, new OrderStatisticTree<>(ORDER));
+            Map<Profession, OrderStatisticTree<Entry>> cells = new EnumMap<>(Profession.class);
+            for (Profession profession : Profession.values()) {
+                cells.put(profession, new OrderStatisticTree<>(ORDER));
+            }
+            byCell.put(race, cells);
+        }
+        for (Profession profession : Profession.values()) {
+            byProfession.put(profession, new OrderStatisticTree<>(ORDER));
+        }
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            global.clear();
+            byRace.values().forEach(OrderStatisticTree::clear);
+            byProfession.values().forEach(OrderStatisticTree::clear);
+            byCell.values().forEach(cells -> cells.values().forEach(OrderStatisticTree::clear));
+            players.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        lock.writeLock().lock();
+        try {
+            remove(player.getId());
+            put(player);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Место игрока в общем рейтинге, среди своей расы и своей профессии.
+     * Игроки с одинаковым опытом делят одно место. Возвращает null, если игрока нет в индексе.
+     */
+    public PlayerRank rank(Long id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+            PlayerRank rank = new PlayerRank(entry.id, entry.experience);
+            rank.setRank(place(global, entry), global.size());
+            if (entry.race != null) {
+                OrderStatisticTree<Entry> tree = byRace.get(entry.race);
+                rank.setRaceRank(place(tree, entry), tree.size());
+            }
+            if (entry.profession != null) {
+                OrderStatisticTree<Entry> tree = byProfession.get(entry.profession);
+                rank.setProfessionRank(place(tree, entry), tree.size());
+            }
+            rank.setPercentile(percentile(global, entry));
+            return rank;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // процент игроков, у которых опыт строго меньше, чем у заданного; null, если игрока нет в индексе
+    public Double percentile(Long id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            return entry == null ? null : percentile(global, entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // id лучших count игроков (в порядке рейтинга), опционально в пределах расы и/или профессии
+    public List<Long> top(Race race, Profession profession, int count) {
+        lock.readLock().lock();
+        try {
+            List<Entry> head = tree(race, profession).range(0, count);
+            List<Long> ids = new ArrayList<>(head.size());
+            head.forEach(entry -> ids.add(entry.id));
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Опыт на заданных квантилях (0..1) среди всех игроков или в пределах расы и/или профессии -
+     * точно, по позиции в дереве за O(log n) на квантиль (nearest-rank: наименьший опыт,
+     * которого не превышают не меньше quantile * n игроков). Возвращает null, если в срезе нет игроков.
+     */
+    public int[] experienceAt(Race race, Profession profession, double[] quantiles) {
+        lock.readLock().lock();
+        try {
+            OrderStatisticTree<Entry> tree = tree(race, profession);
+            int size = tree.size();
+            if (size == 0) {
+                return null;
+            }
+            int[] values = new int[quantiles.length];
+            for (int i = 0; i < quantiles.length; i++) {
+                int rank = Math.max(1, (int) Math.ceil(quantiles[i] * size));
+                // дерево упорядочено по убыванию опыта
+                values[i] = tree.get(size - rank).experience;
+            }
+            return values;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // количество игроков в срезе
+    public int size(Race race, Profession profession) {
+        lock.readLock().lock();
+        try {
+            return tree(race, profession).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private OrderStatisticTree<Entry> tree(Race race, Profession profession) {
+        if (race != null && profession != null) {
+            return byCell.get(race).get(profession);
+        }
+        if (race != null) {
+            return byRace.get(race);
+        }
+        if (profession != null) {
+            return byProfession.get(profession);
+        }
+        return global;
+    }
+
+    // 1 + количество игроков со строго большим опытом
+    private static int place(OrderStatisticTree<Entry> tree, Entry entry) {
+        return tree.rank(new Entry(Long.MIN_VALUE, entry.experience, null, null)) + 1;
+    }
+
+    private static double percentile(OrderStatisticTree<Entry> tree, Entry entry) {
+        int total = tree.size();
+        int notLower = tree.rank(new Entry(Long.MAX_VALUE, entry.experience, null, null));
+        return total == 0 ? 0 : 100.0 * (total - notLower) / total;
+    }
+
+    private void put(Player player) {
+        if (player.getId() == null || player.getExperience() == null) {
+            return;
+        }
+        Entry entry = new Entry(player.getId(), player.getExperience(), player.getRace(), player.getProfession());
+        entries.put(entry.id, entry);
+        global.add(entry);
+        if (entry.race != null) {
+            byRace.get(entry.race).add(entry);
+        }
+        if (entry.profession != null) {
+            byProfession.get(entry.profession).add(entry);
+        }
+        if (entry.race != null && entry.profession != null) {
+            byCell.get(entry.race).get(entry.profession).add(entry);
+        }
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        global.remove(entry);
+        if (entry.race != null) {
+            byRace.get(entry.race).remove(entry);
+        }
+        if (entry.profession != null) {
+            byProfession.get(entry.profession).remove(entry);
+        }
+        if (entry.race != null && entry.profession != null) {
+            byCell.get(entry.race).get(entry.profession).remove(entry);
+        }
+    }
+}
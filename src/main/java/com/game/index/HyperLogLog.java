@@ -0,0 +1,86 @@
+package com.game.index;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog - оценка количества различных значений в фиксированной памяти (2^precision байт).
+ *
+ * Относительная стандартная ошибка - 1.04 / sqrt(2^precision), например 1.6% при precision = 12.
+ * Скетчи с одинаковой точностью объединяются (merge) поэлементным максимумом регистров.
+ * Удалять значения нельзя. Класс не потокобезопасен - синхронизация остается на вызывающем коде.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be in 4..18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    // добавляет значение по его 64-битному хэшу (биты хэша должны быть хорошо перемешаны)
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // сторожевой бит ограничивает длину серии нулей
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches with different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        // на малых количествах точнее линейный подсчет по пустым регистрам
+        if (raw <= 2.5 * m && zeros > 0) {
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    // относительная стандартная ошибка оценки
+    public double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    // 64-битный хэш строки: FNV-1a по символам и перемешивание splitmix64
+    public static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
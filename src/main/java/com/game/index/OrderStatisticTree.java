@@ -0,0 +1,201 @@
+package com.game.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Дерево порядковых статистик (декартово дерево, treap), в каждом узле которого хранится размер поддерева.
+ *
+ * Позволяет за O(log n) добавлять и удалять ключи, узнавать позицию ключа в отсортированном порядке (rank)
+ * и получать ключ по позиции (get). Выборка подряд идущих ключей range стоит O(log n + count).
+ *
+ * Класс не потокобезопасен - синхронизация остается на вызывающем коде.
+ */
+public class OrderStatisticTree<K> {
+
+    private static final class Node<K> {
+        final K key;
+        final int priority;
+        int size = 1;
+        Node<K> left;
+        Node<K> right;
+
+        Node(K key) {
+            this.key = key;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final Comparator<? super K> comparator;
+    private Node<K> root;
+
+    public OrderStatisticTree(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    public void add(K key) {
+        Node<K>[] parts = split(root, key, false);
+        root = merge(merge(parts[0], new Node<>(key)), parts[1]);
+    }
+
+    public boolean remove(K key) {
+        // [< key] [== key] [> key]
+        Node<K>[] less = split(root, key, false);
+        Node<K>[] equal = split(less[1], key, true);
+        boolean removed = equal[0] != null;
+        if (removed) {
+            equal[0] = merge(equal[0].left, equal[0].right);
+        }
+        root = merge(less[0], merge(equal[0], equal[1]));
+        return removed;
+    }
+
+    // количество ключей, строго меньших заданного
+    public int rank(K key) {
+        int rank = 0;
+        Node<K> node = root;
+        while (node != null) {
+            if (comparator.compare(node.key, key) < 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    // ключ, стоящий на позиции index (нумерация с нуля)
+    public K get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        Node<K> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.key;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    // не более count ключей, начиная с позиции from
+    public List<K> range(int from, int count) {
+        List<K> result = new ArrayList<>(Math.max(0, Math.min(count, size() - from)));
+        collect(root, Math.max(from, 0), count, result);
+        return result;
+    }
+
+    /**
+     * Обход ключей по порядку, начиная с позиции from, пока visitor возвращает true.
+     * Спуск к позиции стоит O(log n), дальше каждый следующий ключ - O(1) в среднем.
+     */
+    public void forEachFrom(int from, Predicate<? super K> visitor) {
+        // в стеке - узлы, которые еще предстоит посетить, вместе с их правыми поддеревьями
+        Deque<Node<K>> stack = new ArrayDeque<>();
+        Node<K> node = root;
+        int skip = Math.max(from, 0);
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (skip < leftSize) {
+                stack.push(node);
+                node = node.left;
+            } else if (skip == leftSize) {
+                stack.push(node);
+                node = null;
+            } else {
+                skip -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        while (!stack.isEmpty()) {
+            Node<K> next = stack.pop();
+            if (!visitor.test(next.key)) {
+                return;
+            }
+            for (Node<K> child = next.right; child != null; child = child.left) {
+                stack.push(child);
+            }
+        }
+    }
+
+    private void collect(Node<K> node, int skip, int count, List<K> result) {
+        if (node == null || result.size() >= count) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (skip < leftSize) {
+            collect(node.left, skip, count, result);
+        }
+        if (skip <= leftSize && result.size() < count) {
+            result.add(node.key);
+        }
+        collect(node.right, Math.max(0, skip - leftSize - 1), count, result);
+    }
+
+    // делит дерево на две части: ключи меньше key (или <= key при inclusive) и все остальные
+    @SuppressWarnings("unchecked")
+    private Node<K>[] split(Node<K> node, K key, boolean inclusive) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        int cmp = comparator.compare(node.key, key);
+        if (cmp < 0 || (inclusive && cmp == 0)) {
+            Node<K>[] parts = split(node.right, key, inclusive);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        } else {
+            Node<K>[] parts = split(node.left, key, inclusive);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+            return parts;
+        }
+    }
+
+    private Node<K> merge(Node<K> left, Node<K> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+    }
+
+    private static void update(Node<?> node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
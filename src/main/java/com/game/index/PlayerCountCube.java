@@ -0,0 +1,205 @@
+package com.game.index;
+
+import com.game.dto.PlayerStats;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.service.PlayerStateListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Куб счетчиков раса × профессия × banned.
+ *
+ * В каждой ячейке хранится дерево Фенвика по уровню (префиксные суммы по уровням),
+ * поэтому количество игроков с фильтрами по расе, профессии, banned и диапазону уровней
+ * считается без обращения к БД: перебор подходящих ячеек (не больше 216) и O(log L) на ячейку.
+ * Пустые (null) значения полей хранятся в отдельном срезе, чтобы общий итог совпадал с таблицей.
+ */
+@Component
+public class PlayerCountCube implements PlayerStateListener {
+
+    // уровень при максимальном опыте 10 000 000
+    static final int MAX_LEVEL = 446;
+
+    private static final int RACES = Race.values().length + 1;
+    private static final int PROFESSIONS = Profession.values().length + 1;
+    private static final int BANNED = 3;
+
+    private static final class Cell {
+        final int race;
+        final int profession;
+        final int banned;
+        final int level;
+
+        Cell(int race, int profession, int banned, int level) {
+            this.race = race;
+            this.profession = profession;
+            this.banned = banned;
+            this.level = level;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Cell> cells = new HashMap<>();
+    // [race][profession][banned] -> дерево Фенвика по уровню (индексация с 1)
+    private final int[][][][] levels = new int[RACES][PROFESSIONS][BANNED][MAX_LEVEL + 2];
+    private final int[][][] totals = new int[RACES][PROFESSIONS][BANNED];
+
+    @Override
+    public void reload(Collection<Player> players) {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            for (int[][][] byProfession : levels) {
+                for (int[][] byBanned : byProfession) {
+                    for (int[] tree : byBanned) {
+                        Arrays.fill(tree, 0);
+                    }
+                }
+            }
+            for (int[][] byProfession : totals) {
+                for (int[] byBanned : byProfession) {
+                    Arrays.fill(byBanned, 0);
+                }
+            }
+            players.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        lock.writeLock().lock();
+        try {
+            remove(player.getId());
+            put(player);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // количество игроков по фильтрам; null означает, что фильтр не задан
+    public int count(Race race, Profession profession, Boolean banned, Integer minLevel, Integer maxLevel) {
+        int from = minLevel == null ? 0 : Math.max(minLevel, 0);
+        int to = maxLevel == null ? MAX_LEVEL : Math.min(maxLevel, MAX_LEVEL);
+        if (from > to) {
+            return 0;
+        }
+        boolean allLevels = from == 0 && to == MAX_LEVEL;
+
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int r = 0; r < RACES; r++) {
+                if (race != null && r != race.ordinal()) {
+                    continue;
+                }
+                for (int p = 0; p < PROFESSIONS; p++) {
+                    if (profession != null && p != profession.ordinal()) {
+                        continue;
+                    }
+                    for (int b = 0; b < BANNED; b++) {
+                        if (banned != null && b != (banned ? 1 : 0)) {
+                            continue;
+                        }
+                        count += allLevels
+                                ? totals[r][p][b]
+                                : prefix(levels[r][p][b], to) - prefix(levels[r][p][b], from - 1);
+                    }
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // распределение игроков по расам и профессиям
+    public PlayerStats stats() {
+        lock.readLock().lock();
+        try {
+            Map<Race, Integer> byRace = new EnumMap<>(Race.class);
+            Map<Profession, Integer> byProfession = new EnumMap<>(Profession.class);
+            for (Race race : Race.values()) {
+                byRace.put(race, 0);
+            }
+            for (Profession profession : Profession.values()) {
+                byProfession.put(profession, 0);
+            }
+            int total = 0;
+            int banned = 0;
+            for (int r = 0; r < RACES; r++) {
+                for (int p = 0; p < PROFESSIONS; p++) {
+                    for (int b = 0; b < BANNED; b++) {
+                        int count = totals[r][p][b];
+                        total += count;
+                        if (b == 1) {
+                            banned += count;
+                        }
+                        if (r < Race.values().length) {
+                            byRace.merge(Race.values()[r], count, Integer::sum);
+                        }
+                        if (p < Profession.values().length) {
+                            byProfession.merge(Profession.values()[p], count, Integer::sum);
+                        }
+                    }
+                }
+            }
+            return new PlayerStats(total, banned, byRace, byProfession);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Player player) {
+        if (player.getId() == null) {
+            return;
+        }
+        Cell cell = new Cell(
+                player.getRace() == null ? RACES - 1 : player.getRace().ordinal(),
+                player.getProfession() == null ? PROFESSIONS - 1 : player.getProfession().ordinal(),
+                player.getBanned() == null ? 2 : (player.getBanned() ? 1 : 0),
+                player.getLevel() == null ? 0 : Math.min(Math.max(player.getLevel(), 0), MAX_LEVEL));
+        cells.put(player.getId(), cell);
+        add(cell, 1);
+    }
+
+    private void remove(Long id) {
+        Cell cell = cells.remove(id);
+        if (cell != null) {
+            add(cell, -1);
+        }
+    }
+
+    private void add(Cell cell, int delta) {
+        totals[cell.race][cell.profession][cell.banned] += delta;
+        int[] tree = levels[cell.race][cell.profession][cell.banned];
+        for (int i = cell.level + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // количество игроков с уровнем <= level
+    private static int prefix(int[] tree, int level) {
+        int sum = 0;
+        for (int i = level + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
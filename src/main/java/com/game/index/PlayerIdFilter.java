@@ -0,0 +1,292 @@
+package com.game.index;
+
+import com.game.dto.IdFilterStats;
+import com.game.entity.Player;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фильтр Блума по id существующих игроков: "точно нет" отвечается без обращения к БД.
+ *
+ * Фильтр масштабируемый: при заполнении слоя добавляется новый слой вдвое большей емкости
+ * с вдвое меньшей долей ложных срабатываний, так что общая доля остается в пределах player.id-filter.fpp.
+ * Удалить id из фильтра Блума нельзя - удаленные игроки дают ложные "может быть"; когда их накапливается
+ * больше половины живых, фильтр в фоне перестраивается по списку id из репозитория.
+ *
+ * Сам фильтр узнает только о вставках этого узла, поэтому он и так перестраивается по списку id
+ * раз в player.id-filter.rebuild-interval-seconds - так в него попадают игроки, созданные другими узлами.
+ * Если последняя загрузка из БД старше player.id-filter.max-age-seconds (например, перестройки падают),
+ * "точно нет" больше не отвечается - все запросы идут в БД, пока фильтр не загрузится снова.
+ * До первой загрузки фильтр на все отвечает "может быть".
+ */
+@Component
+public class PlayerIdFilter implements PlayerStateListener, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerIdFilter.class);
+
+    private static final int MIN_CAPACITY = 1024;
+
+    /**
+     * Слой фильтра: биты в AtomicLongArray, добавление без блокировок.
+     */
+    private static final class Layer {
+        final int capacity;
+        final int hashes;
+        final long bits;
+        final AtomicLongArray words;
+        final AtomicInteger count = new AtomicInteger();
+
+        Layer(int capacity, double fpp) {
+            this.capacity = capacity;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.bits = Math.max(64, (optimalBits + 63) / 64 * 64);
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            this.words = new AtomicLongArray((int) (bits / 64));
+        }
+
+        void add(long id) {
+            long h1 = mix(id);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, current, current | mask));
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long id) {
+            long h1 = mix(id);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // ожидаемая доля ложных срабатываний при текущем заполнении
+        double expectedFpp() {
+            return Math.pow(1 - Math.exp(-(double) hashes * count.get() / bits), hashes);
+        }
+
+        private static long mix(long x) {
+            x += 0x9E3779B97F4A7C15L;
+            x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+            x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+            return x ^ (x >>> 31);
+        }
+    }
+
+    private final PlayerRepository playerRepository;
+    private final double fpp;
+    private final long maxAgeNanos;
+    private final ScheduledExecutorService rebuilder;
+
+    private volatile List<Layer> layers = new ArrayList<>();
+    private volatile boolean ready;
+    // System.nanoTime() начала чтения, по которому загружен фильтр
+    private volatile long loadedAt;
+    private List<Long> rebuildBuffer;
+    private long epoch;
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    @Autowired
+    public PlayerIdFilter(PlayerRepository playerRepository,
+                          @Value("${player.id-filter.fpp:0.01}") double fpp,
+                          @Value("${player.id-filter.rebuild-interval-seconds:60}") long rebuildIntervalSeconds,
+                          @Value("${player.id-filter.max-age-seconds:300}") long maxAgeSeconds) {
+        this.playerRepository = playerRepository;
+        this.fpp = fpp;
+        this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "player-id-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuildIfIdle, rebuildIntervalSeconds, rebuildIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * false - игрока с таким id точно нет; true - может быть, нужно проверить в БД.
+     */
+    public boolean mightContain(Long id) {
+        lookups.increment();
+        if (!ready || isExpired()) {
+            return true;
+        }
+        for (Layer layer : layers) {
+            if (layer.mightContain(id)) {
+                return true;
+            }
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    // фильтр загружен слишком давно и мог не узнать об игроках, созданных другими узлами
+    private boolean isExpired() {
+        return System.nanoTime() - loadedAt > maxAgeNanos;
+    }
+
+    // фильтр ответил "может быть", а игрока нет
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Добавляет id. Вызывается при создании игрока сразу после INSERT, до коммита:
+     * лишний id (если транзакция откатится) дает только ложное срабатывание, а пропущенный - ложный 404.
+     */
+    public synchronized void add(Long id) {
+        put(id);
+        if (rebuildBuffer != null) {
+            rebuildBuffer.add(id);
+        }
+    }
+
+    private void put(Long id) {
+        List<Layer> current = layers;
+        Layer last = current.isEmpty() ? null : current.get(current.size() - 1);
+        if (last == null || last.count.get() >= last.capacity) {
+            List<Layer> grown = new ArrayList<>(current);
+            last = new Layer(last == null ? MIN_CAPACITY : last.capacity * 2, fpp / Math.pow(2, current.size() + 1));
+            grown.add(last);
+            layers = grown;
+        }
+        last.add(id);
+        live.incrementAndGet();
+    }
+
+    public IdFilterStats getStats() {
+        double expected = 1;
+        long bits = 0;
+        for (Layer layer : layers) {
+            expected *= 1 - layer.expectedFpp();
+            bits += layer.bits;
+        }
+        long maybe = lookups.sum() - definiteMisses.sum();
+        return new IdFilterStats(layers.size(), bits, live.get(), deleted.get(), 1 - expected,
+                lookups.sum(), definiteMisses.sum(), falsePositives.sum(),
+                maybe == 0 ? 0.0 : (double) falsePositives.sum() / maybe);
+    }
+
+    @Override
+    public synchronized void reload(Collection<Player> players) {
+        List<Long> ids = new ArrayList<>(players.size());
+        players.forEach(player -> ids.add(player.getId()));
+        epoch++;
+        load(ids, System.nanoTime());
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        if (!layers.isEmpty() && mightContainQuietly(player.getId())) {
+            return;
+        }
+        add(player.getId());
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        live.decrementAndGet();
+        if (deleted.incrementAndGet() > Math.max(MIN_CAPACITY, live.get() / 2) && rebuilding.compareAndSet(false, true)) {
+            rebuilder.execute(this::rebuild);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+
+    // плановая перестройка; пропускается, если уже идет перестройка после удалений
+    void rebuildIfIdle() {
+        if (rebuilding.compareAndSet(false, true)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Перестройка по id из репозитория. id, добавленные во время чтения, дописываются из буфера;
+     * если за это время была полная перезагрузка (reload), результат перестройки отбрасывается.
+     */
+    private void rebuild() {
+        long startEpoch;
+        synchronized (this) {
+            rebuildBuffer = new ArrayList<>();
+            startEpoch = epoch;
+        }
+        try {
+            long readAt = System.nanoTime();
+            List<Long> ids = playerRepository.findAllIds();
+            synchronized (this) {
+                if (epoch == startEpoch) {
+                    List<Long> added = rebuildBuffer;
+                    load(ids, readAt);
+                    added.forEach(this::put);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebuild player id filter", e);
+        } finally {
+            synchronized (this) {
+                rebuildBuffer = null;
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    private void load(List<Long> ids, long readAt) {
+        List<Layer> rebuilt = new ArrayList<>();
+        rebuilt.add(new Layer(Math.max(MIN_CAPACITY, ids.size() * 2), fpp / 2));
+        layers = rebuilt;
+        live.set(0);
+        deleted.set(0);
+        ids.forEach(this::put);
+        loadedAt = readAt;
+        ready = true;
+    }
+
+    private boolean mightContainQuietly(Long id) {
+        for (Layer layer : layers) {
+            if (layer.mightContain(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,212 @@
+package com.game.index;
+
+import com.game.controller.PlayerOrder;
+import com.game.deadline.RequestDeadline;
+import com.game.entity.Player;
+import com.game.filter.PlayerFilter;
+import com.game.filter.PlayerFilterPlan;
+import com.game.service.PlayerPageSelector;
+import com.game.service.PlayerStateListener;
+import com.game.writebehind.PlayerWriteBehind;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Упорядоченные индексы игроков для каждого PlayerOrder.
+ *
+ * Для каждого порядка держит дерево порядковых статистик, которое обновляется на каждой записи за O(log n).
+ * Страница списка - обход дерева по порядку: без фильтров это спуск к началу страницы и pageSize шагов,
+ * с фильтрами - обход с начала с проверкой плана фильтрации, пока не наберется страница. Сортировки нет совсем.
+ * Отфильтрованная страница стоит O(позиция последнего подходящего игрока) под блокировкой чтения, поэтому
+ * страницы дальше player.order-index.max-filtered-offset подходящих игроков индекс не отдает -
+ * их строит PlayerPageSelector, не задерживая записи в индекс.
+ *
+ * Для порядка NAME при записи один раз строится CollationKey по правилам русского языка,
+ * и дерево сравнивает готовые ключи, а не строки через Collator.
+ * Порядок совпадает с PlayerPageSelector, который используется, пока индекс не построен или выключен
+ * (player.order-index.enabled=false, например чтобы не держать игроков в куче в профиле memory).
+ */
+@Component
+public class PlayerOrderIndex implements PlayerStateListener {
+
+    private static final int CHECK_INTERVAL = 1023;
+
+    private static final class Entry {
+        final Player player;
+        final CollationKey nameKey;
+
+        Entry(Player player, CollationKey nameKey) {
+            this.player = player;
+            this.nameKey = nameKey;
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxFilteredOffset;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<PlayerOrder, OrderStatisticTree<Entry>> trees = new EnumMap<>(PlayerOrder.class);
+    // используется только под блокировкой записи
+    private final Collator collator = PlayerPageSelector.nameCollator();
+    private boolean ready;
+
+    @Autowired
+    public PlayerOrderIndex(@Value("${player.order-index.enabled:true}") boolean enabled,
+                            @Value("${player.order-index.max-filtered-offset:10000}") int maxFilteredOffset) {
+        this.enabled = enabled;
+        this.maxFilteredOffset = maxFilteredOffset;
+        for (PlayerOrder order : PlayerOrder.values()) {
+            trees.put(order, new OrderStatisticTree<>(comparator(order)));
+        }
+    }
+
+    private static Comparator<Entry> comparator(PlayerOrder order) {
+        Comparator<Entry> byId = Comparator.comparing(entry -> entry.player.getId());
+        if (order == PlayerOrder.NAME) {
+            return Comparator.comparing((Entry entry) -> entry.nameKey, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(byId);
+        }
+        return Comparator.comparing((Entry entry) -> entry.player, PlayerPageSelector.comparator(order));
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            trees.values().forEach(OrderStatisticTree::clear);
+            players.forEach(this::put);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        if (!enabled) {
+            return;
+        }
+        // своя копия: ключи в деревьях не должны меняться вместе с объектом, который ушел клиенту
+        Player copy = PlayerWriteBehind.copyOf(player);
+        lock.writeLock().lock();
+        try {
+            remove(copy.getId());
+            put(copy);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Все игроки индекса или null, если индекс не построен или выключен.
+     * Игроки в индексе не меняются (запись заменяет копию целиком), поэтому под блокировкой чтения
+     * копируется только список ссылок.
+     */
+    public List<Player> players() {
+        if (!enabled) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return null;
+            }
+            List<Player> players = new ArrayList<>(entries.size());
+            entries.values().forEach(entry -> players.add(entry.player));
+            return players;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Страница отфильтрованного списка в порядке order или null, если индекс не построен или выключен,
+     * а также для отфильтрованной страницы дальше maxFilteredOffset.
+     */
+    public List<Player> page(PlayerFilter filter, PlayerOrder order, int pageNumber, int pageSize) {
+        if (!enabled) {
+            return null;
+        }
+        long start = (long) pageNumber * pageSize;
+        PlayerFilterPlan plan = PlayerFilterPlan.compile(filter);
+        if (!plan.isEmpty() && start > maxFilteredOffset) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return null;
+            }
+            OrderStatisticTree<Entry> tree = trees.get(order == null ? PlayerOrder.ID : order);
+            if (pageNumber < 0 || pageSize <= 0 || start >= tree.size()) {
+                return new ArrayList<>();
+            }
+
+            List<Player> page = new ArrayList<>(Math.min(pageSize, tree.size()));
+            if (plan.isEmpty()) {
+                tree.forEachFrom((int) start, entry -> {
+                    page.add(entry.player);
+                    return page.size() < pageSize;
+                });
+                return page;
+            }
+
+            // фильтр: пропускаем первые start подходящих игроков и набираем страницу
+            long[] matched = {0};
+            int[] visited = {0};
+            tree.forEachFrom(0, entry -> {
+                if ((++visited[0] & CHECK_INTERVAL) == 0) {
+                    RequestDeadline.check();
+                }
+                if (plan.matches(entry.player) && matched[0]++ >= start) {
+                    page.add(entry.player);
+                }
+                return page.size() < pageSize;
+            });
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Player player) {
+        if (player.getId() == null) {
+            return;
+        }
+        Entry entry = new Entry(player, player.getName() == null ? null : collator.getCollationKey(player.getName()));
+        entries.put(player.getId(), entry);
+        trees.values().forEach(tree -> tree.add(entry));
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            trees.values().forEach(tree -> tree.remove(entry));
+        }
+    }
+}
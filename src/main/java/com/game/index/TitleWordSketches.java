@@ -0,0 +1,265 @@
+package com.game.index;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Количество различных слов в титулах игроков - по всей таблице, по расе, профессии и паре раса+профессия.
+ *
+ * Для каждого среза держится HyperLogLog (player.analytics.title-precision), новые титулы добавляются
+ * на каждой записи, так что ответ - оценка одного скетча без обращения к БД.
+ * Удалять из HyperLogLog нельзя: слова удаленных игроков и старых титулов остаются в оценке,
+ * поэтому после таких изменений скетчи раз в player.analytics.rebuild-interval-seconds
+ * перестраиваются в фоне по игрокам из репозитория. Чтобы отличать такие изменения от прочих записей
+ * (например, начисления опыта), для каждого игрока хранится отпечаток титула, расы и профессии.
+ */
+@Component
+public class TitleWordSketches implements PlayerStateListener, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TitleWordSketches.class);
+
+    private static final Locale LOCALE = new Locale("ru", "RU");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // хэши слов титула игрока и его срез; разбираются без блокировки
+    private static final class Words {
+        final Race race;
+        final Profession profession;
+        final long[] hashes;
+
+        Words(Player player) {
+            this.race = player.getRace();
+            this.profession = player.getProfession();
+            if (player.getTitle() == null) {
+                this.hashes = new long[0];
+                return;
+            }
+            String[] words = SEPARATORS.split(player.getTitle().toLowerCase(LOCALE));
+            long[] hashes = new long[words.length];
+            int count = 0;
+            for (String word : words) {
+                if (!word.isEmpty()) {
+                    hashes[count++] = HyperLogLog.hash(word);
+                }
+            }
+            this.hashes = Arrays.copyOf(hashes, count);
+        }
+    }
+
+    private final class Sketches {
+        final HyperLogLog global = new HyperLogLog(precision);
+        final Map<Race, HyperLogLog> byRace = new EnumMap<>(Race.class);
+        final Map<Profession, HyperLogLog> byProfession = new EnumMap<>(Profession.class);
+        final Map<Race, Map<Profession, HyperLogLog>> byCell = new EnumMap<>(Race.class);
+
+        Sketches() {
+            for (Race race : Race.values()) {
+                byRace.put(race, new HyperLogLog(precision));
+                Map<Profession, HyperLogLog> cells = new EnumMap<>(Profession.class);
+                for (Profession profession : Profession.values()) {
+                    cells.put(profession, new HyperLogLog(precision));
+                }
+                byCell.put(race, cells);
+            }
+            for (Profession profession : Profession.values()) {
+                byProfession.put(profession, new HyperLogLog(precision));
+            }
+        }
+
+        void add(Player player) {
+            add(new Words(player));
+        }
+
+        void add(Words words) {
+            for (long hash : words.hashes) {
+                global.add(hash);
+                if (words.race != null) {
+                    byRace.get(words.race).add(hash);
+                }
+                if (words.profession != null) {
+                    byProfession.get(words.profession).add(hash);
+                }
+                if (words.race != null && words.profession != null) {
+                    byCell.get(words.race).get(words.profession).add(hash);
+                }
+            }
+        }
+
+        HyperLogLog get(Race race, Profession profession) {
+            if (race != null && profession != null) {
+                return byCell.get(race).get(profession);
+            }
+            if (race != null) {
+                return byRace.get(race);
+            }
+            if (profession != null) {
+                return byProfession.get(profession);
+            }
+            return global;
+        }
+    }
+
+    private final PlayerRepository playerRepository;
+    private final int precision;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService rebuilder;
+    // id -> отпечаток титула, расы и профессии, попавших в скетчи
+    private final Map<Long, Long> fingerprints = new ConcurrentHashMap<>();
+    private Sketches sketches;
+    private boolean stale;
+    private long epoch;
+    private List<Words> rebuildBuffer;
+
+    @Autowired
+    public TitleWordSketches(PlayerRepository playerRepository,
+                             @Value("${player.analytics.title-precision:12}") int precision,
+                             @Value("${player.analytics.rebuild-interval-seconds:600}") long rebuildIntervalSeconds) {
+        this.playerRepository = playerRepository;
+        this.precision = precision;
+        this.sketches = new Sketches();
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "title-word-sketches");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuildIfStale, rebuildIntervalSeconds, rebuildIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    // оценка количества различных слов в титулах среза (race и profession необязательны)
+    public long estimate(Race race, Profession profession) {
+        lock.readLock().lock();
+        try {
+            return sketches.get(race, profession).estimate();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // относительная стандартная ошибка оценки
+    public double standardError() {
+        return sketches.global.standardError();
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        Sketches loaded = new Sketches();
+        players.forEach(loaded::add);
+        fingerprints.clear();
+        players.forEach(player -> fingerprints.put(player.getId(), fingerprint(player)));
+        lock.writeLock().lock();
+        try {
+            sketches = loaded;
+            stale = false;
+            epoch++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        long fingerprint = fingerprint(player);
+        Long previous = fingerprints.put(player.getId(), fingerprint);
+        if (previous != null && previous == fingerprint) {
+            // титул и срез прежние (например, изменился только опыт) - слова уже учтены
+            return;
+        }
+        // слова разбираются до блокировки, под ней только добавляются готовые хэши
+        Words words = new Words(player);
+        lock.writeLock().lock();
+        try {
+            sketches.add(words);
+            // у измененного игрока в скетчах остались слова старого титула или среза
+            if (previous != null) {
+                stale = true;
+            }
+            if (rebuildBuffer != null) {
+                rebuildBuffer.add(words);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        fingerprints.remove(id);
+        lock.writeLock().lock();
+        try {
+            stale = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Перестройка по игрокам из репозитория. Игроки, сохраненные во время чтения, дописываются из буфера;
+     * если за это время была полная перезагрузка (reload), результат отбрасывается.
+     */
+    public void rebuildIfStale() {
+        long startEpoch;
+        lock.writeLock().lock();
+        try {
+            if (!stale) {
+                return;
+            }
+            stale = false;
+            startEpoch = epoch;
+            rebuildBuffer = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Sketches rebuilt = null;
+        try {
+            rebuilt = new Sketches();
+            playerRepository.findAllForRead().forEach(rebuilt::add);
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebuild title word sketches", e);
+            rebuilt = null;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (rebuilt == null) {
+                    stale = true;
+                } else if (epoch == startEpoch) {
+                    rebuildBuffer.forEach(rebuilt::add);
+                    sketches = rebuilt;
+                    epoch++;
+                }
+                rebuildBuffer = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // 64-битный хэш: у String.hashCode легко найти разные титулы с одним значением
+    private static long fingerprint(Player player) {
+        return HyperLogLog.hash(player.getTitle() + '\u0000' + player.getRace() + '\u0000' + player.getProfession());
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+}
@@ -0,0 +1,114 @@
+package com.game.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Версионные миграции схемы БД.
+ *
+ * Скрипты лежат в classpath (db/migration) и называются V<номер>__<описание>.sql.
+ * При старте применяются по возрастанию номера все скрипты, которых еще нет в таблице schema_version.
+ * Уже примененный скрипт менять нельзя - любое изменение схемы оформляется новой миграцией
+ * (и дублируется в test.sql, который пересоздает таблицу player в тестах).
+ */
+public class SchemaMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String CREATE_VERSION_TABLE =
+            "CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT NOT NULL, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "installed_on TIMESTAMP NOT NULL, " +
+                    "PRIMARY KEY (version))";
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Resource script;
+
+        Migration(int version, String description, Resource script) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final String location;
+
+    public SchemaMigrator(DataSource dataSource, String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+    }
+
+    public void migrate() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(CREATE_VERSION_TABLE);
+
+        Set<Integer> applied = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT version FROM schema_version", Integer.class));
+
+        for (Migration migration : findMigrations()) {
+            if (applied.contains(migration.version)) {
+                continue;
+            }
+            log.info("Applying schema migration V{} ({})", migration.version, migration.description);
+            try (Connection connection = dataSource.getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.script, StandardCharsets.UTF_8));
+            } catch (SQLException e) {
+                throw new IllegalStateException("Schema migration V" + migration.version + " failed", e);
+            }
+            jdbcTemplate.update("INSERT INTO schema_version (version, description, installed_on) VALUES (?, ?, ?)",
+                    migration.version, migration.description, new Timestamp(System.currentTimeMillis()));
+        }
+    }
+
+    // текущая версия схемы (0, если миграции еще не применялись)
+    public int currentVersion() {
+        Integer version = new JdbcTemplate(dataSource).queryForObject(
+                "SELECT MAX(version) FROM schema_version", Integer.class);
+        return version == null ? 0 : version;
+    }
+
+    private List<Migration> findMigrations() {
+        Resource[] resources;
+        try {
+            resources = new PathMatchingResourcePatternResolver().getResources(location);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<Integer, Migration> migrations = new TreeMap<>();
+        for (Resource resource : resources) {
+            Matcher matcher = FILE_NAME.matcher(Objects.requireNonNull(resource.getFilename()));
+            if (!matcher.matches()) {
+                continue;
+            }
+            int version = Integer.parseInt(matcher.group(1));
+            Migration migration = new Migration(version, matcher.group(2).replace('_', ' '), resource);
+            if (migrations.put(version, migration) != null) {
+                throw new IllegalStateException("Duplicate schema migration version: V" + version);
+            }
+        }
+        return new ArrayList<>(migrations.values());
+    }
+}
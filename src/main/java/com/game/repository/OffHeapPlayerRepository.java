@@ -0,0 +1,719 @@
+package com.game.repository;
+
+import com.game.deadline.RequestDeadline;
+import com.game.entity.Player;
+import com.game.entity.PlayerLevels;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.filter.PlayerFilter;
+import com.game.service.PlayerStateListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище игроков вне Java-кучи (профиль memory).
+ *
+ * Каждый игрок - запись фиксированной длины RECORD_SIZE байт в direct или memory-mapped ByteBuffer.
+ * Буферы (слэбы) выделяются по мере роста, освобожденные слоты переиспользуются.
+ * Индекс id -> слот хранится в примитивной хэш-таблице, поэтому на игрока не приходится ни одного
+ * объекта в куче - объекты Player создаются только при выдаче результата.
+ *
+ * Структура (индекс, список свободных слотов, слэбы) защищена общей RW-блокировкой,
+ * содержимое записей - полосатыми (striped) блокировками по номеру слота,
+ * так что обновления разных игроков не мешают друг другу.
+ *
+ * Фильтрация (PlayerScanner) идет прямо по буферам: числовые поля и enum сравниваются без декодирования,
+ * подстроки ищутся по символам в буфере, объект Player создается только для подошедших записей.
+ *
+ * Хранилище пустое до первого reload (PlayerStateListener): при старте PlayerService.warmUp заполняет его
+ * из снапшота или, если снапшота нет, из таблицы player. Записи применяются сразу, а внутри транзакции
+ * прежние версии игроков запоминаются и возвращаются при ее откате.
+ */
+public class OffHeapPlayerRepository implements PlayerRepository, PlayerScanner, PlayerStateListener {
+
+    static final int NAME_LENGTH = 12;
+    static final int TITLE_LENGTH = 30;
+
+    // раскладка записи
+    private static final int ID = 0;
+    private static final int BANNED = 8;
+    private static final int RACE = 9;
+    private static final int PROFESSION = 10;
+    private static final int BIRTHDAY = 12;
+    private static final int EXPERIENCE = 20;
+    private static final int LEVEL = 24;
+    private static final int UNTIL_NEXT_LEVEL = 28;
+    private static final int NAME = 32;
+    private static final int TITLE = NAME + 1 + NAME_LENGTH * 2;
+    static final int RECORD_SIZE = 128;
+
+    private static final byte NULL_BYTE = -1;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final int STRIPES = 64;
+
+    private static final Race[] RACES = Race.values();
+    private static final Profession[] PROFESSIONS = Profession.values();
+
+    private final int slabShift;
+    private final int slabMask;
+    private final FileChannel mappedFile;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock[] stripes = new ReadWriteLock[STRIPES];
+    private final LongIntHashMap slots;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int highWater;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * @param slabRecords количество записей в одном слэбе (округляется вверх до степени двойки)
+     * @param mappedFile  файл для memory-mapped слэбов; null - direct-буферы.
+     *                    Файл служит только рабочей памятью и очищается при старте.
+     */
+    public OffHeapPlayerRepository(int slabRecords, Path mappedFile) {
+        int records = Integer.highestOneBit(Math.max(slabRecords - 1, 1)) << 1;
+        this.slabShift = Integer.numberOfTrailingZeros(records);
+        this.slabMask = records - 1;
+        this.slots = new LongIntHashMap(records);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        try {
+            this.mappedFile = mappedFile == null ? null : FileChannel.open(mappedFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---------- CrudRepository ----------
+
+    @Override
+    public <S extends Player> S save(S player) {
+        validate(player);
+        if (player.getId() != null) {
+            beforeWrite(player.getId());
+        }
+        structureLock.readLock().lock();
+        try {
+            int slot = player.getId() == null ? LongIntHashMap.MISSING : slots.get(player.getId());
+            if (slot != LongIntHashMap.MISSING) {
+                write(slot, player);
+                return player;
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+
+        // новый игрок: как и JPA с IDENTITY, id всегда выдает хранилище
+        structureLock.writeLock().lock();
+        try {
+            player.setId(nextId.getAndIncrement());
+            int slot = allocateSlot();
+            slots.put(player.getId(), slot);
+            write(slot, player);
+            afterInsert(player.getId());
+            return player;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public <S extends Player> List<S> saveAll(Iterable<S> players) {
+        List<S> result = new ArrayList<>();
+        players.forEach(player -> result.add(save(player)));
+        return result;
+    }
+
+    @Override
+    public Optional<Player> findById(Long id) {
+        structureLock.readLock().lock();
+        try {
+            int slot = slots.get(id);
+            return slot == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(read(slot));
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        structureLock.readLock().lock();
+        try {
+            return slots.get(id) != LongIntHashMap.MISSING;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Player> findAll() {
+        return findAll(new PlayerFilter(null, null, null, null, null, null, null, null, null, null, null));
+    }
+
+    @Override
+    public List<Player> findAllById(Iterable<Long> ids) {
+        List<Player> result = new ArrayList<>();
+        structureLock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                int slot = slots.get(id);
+                if (slot != LongIntHashMap.MISSING) {
+                    result.add(read(slot));
+                }
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public long count() {
+        structureLock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        beforeWrite(id);
+        structureLock.writeLock().lock();
+        try {
+            int slot = slots.remove(id);
+            if (slot == LongIntHashMap.MISSING) {
+                throw new EmptyResultDataAccessException("No Player entity with id " + id + " exists!", 1);
+            }
+            release(slot);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Player player) {
+        if (player.getId() != null && existsById(player.getId())) {
+            deleteById(player.getId());
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Player> players) {
+        players.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        if (undoLog() != null) {
+            findAllIds().forEach(this::beforeWrite);
+        }
+        structureLock.writeLock().lock();
+        try {
+            clearAll();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Заменяет содержимое хранилища игроками с уже выданными id (загрузка из таблицы или снапшота).
+     * Новые игроки после этого получают id больше максимального из загруженных.
+     */
+    public void replaceAll(Collection<Player> players) {
+        players.forEach(OffHeapPlayerRepository::validate);
+        structureLock.writeLock().lock();
+        try {
+            clearAll();
+            long maxId = 0;
+            for (Player player : players) {
+                int slot = allocateSlot();
+                slots.put(player.getId(), slot);
+                write(slot, player);
+                maxId = Math.max(maxId, player.getId());
+            }
+            nextId.set(maxId + 1);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // ---------- PlayerStateListener ----------
+
+    // при старте и после изменения таблицы в обход сервиса хранилище заполняется тем же состоянием,
+    // что получают индексы; об отдельных записях оно и так знает
+    @Override
+    public void reload(Collection<Player> players) {
+        replaceAll(players);
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+    }
+
+    // ---------- PlayerRepository ----------
+
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    // время изменения записей не хранится, поэтому измененными считаются все
+    @Override
+    public List<Player> findByUpdatedAtGreaterThanEqual(Date since) {
+        return findAll();
+    }
+
+    // объекты Player и так создаются заново при каждом чтении
+    @Override
+    public List<Player> findAllForRead() {
+        return findAll();
+    }
+
+    @Override
+    public List<Player> findAllByIdForRead(Collection<Long> ids) {
+        return findAllById(ids);
+    }
+
+    // просмотр буферов и так точный и без обращения к БД
+    @Override
+    public List<Player> findAllForRead(PlayerFilter filter) {
+        return findAll(filter);
+    }
+
+    @Override
+    public long countForRead(PlayerFilter filter) {
+        return count(filter);
+    }
+
+    @Override
+    public List<Long> findAllIds() {
+        structureLock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(slots.size());
+            for (int slot = 0; slot < highWater; slot++) {
+                long id = slabs.get(slot >>> slabShift).getLong((slot & slabMask) * RECORD_SIZE + ID);
+                if (id != 0) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int addExperience(Map<Long, Long> deltas) {
+        if (undoLog() != null) {
+            deltas.keySet().forEach(this::beforeWrite);
+        }
+        int updated = 0;
+        structureLock.readLock().lock();
+        try {
+            for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+                int slot = slots.get(delta.getKey());
+                if (slot == LongIntHashMap.MISSING) {
+                    continue;
+                }
+                ReadWriteLock stripe = stripes[slot & (STRIPES - 1)];
+                stripe.writeLock().lock();
+                try {
+                    ByteBuffer slab = slabs.get(slot >>> slabShift);
+                    int base = (slot & slabMask) * RECORD_SIZE;
+                    int current = slab.getInt(base + EXPERIENCE);
+                    int experience = PlayerLevels.addExperience(current == NULL_INT ? 0 : current, delta.getValue());
+                    int level = PlayerLevels.level(experience);
+                    slab.putInt(base + EXPERIENCE, experience);
+                    slab.putInt(base + LEVEL, level);
+                    slab.putInt(base + UNTIL_NEXT_LEVEL, PlayerLevels.untilNextLevel(level, experience));
+                    updated++;
+                } finally {
+                    stripe.writeLock().unlock();
+                }
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        return updated;
+    }
+
+    @Override
+    public int patch(Long id, Player patch) {
+        beforeWrite(id);
+        structureLock.readLock().lock();
+        try {
+            int slot = slots.get(id);
+            if (slot == LongIntHashMap.MISSING) {
+                return 0;
+            }
+            ReadWriteLock stripe = stripes[slot & (STRIPES - 1)];
+            stripe.writeLock().lock();
+            try {
+                Player player = decode(slabs.get(slot >>> slabShift), (slot & slabMask) * RECORD_SIZE);
+                if (patch.getName() != null) {
+                    player.setName(patch.getName());
+                }
+                if (patch.getTitle() != null) {
+                    player.setTitle(patch.getTitle());
+                }
+                if (patch.getRace() != null) {
+                    player.setRace(patch.getRace());
+                }
+                if (patch.getProfession() != null) {
+                    player.setProfession(patch.getProfession());
+                }
+                if (patch.getBirthday() != null) {
+                    player.setBirthday(patch.getBirthday());
+                }
+                if (patch.getBanned() != null) {
+                    player.setBanned(patch.getBanned());
+                }
+                if (patch.getExperience() != null) {
+                    player.setExperience(patch.getExperience());
+                    player.setLevel(PlayerLevels.level(patch.getExperience()));
+                    player.setUntilNextLevel(PlayerLevels.untilNextLevel(player.getLevel(), patch.getExperience()));
+                }
+                validate(player);
+                write(slot, player);
+                return 1;
+            } finally {
+                stripe.writeLock().unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    // ---------- PlayerScanner ----------
+
+    @Override
+    public List<Player> findAll(PlayerFilter filter) {
+        List<Player> result = new ArrayList<>();
+        scan(filter, result);
+        return result;
+    }
+
+    @Override
+    public int count(PlayerFilter filter) {
+        return scan(filter, null);
+    }
+
+    private int scan(PlayerFilter filter, List<Player> result) {
+        int race = filter.getRace() == null ? NULL_INT : filter.getRace().ordinal();
+        int profession = filter.getProfession() == null ? NULL_INT : filter.getProfession().ordinal();
+        int banned = filter.getBanned() == null ? NULL_INT : (filter.getBanned() ? 1 : 0);
+        int minLevel = filter.getMinLevel() == null ? Integer.MIN_VALUE : filter.getMinLevel();
+        int maxLevel = filter.getMaxLevel() == null ? Integer.MAX_VALUE : filter.getMaxLevel();
+        int minExperience = filter.getMinExperience() == null ? Integer.MIN_VALUE : filter.getMinExperience();
+        int maxExperience = filter.getMaxExperience() == null ? Integer.MAX_VALUE : filter.getMaxExperience();
+        long after = filter.getAfter() == null ? Long.MIN_VALUE : filter.getAfter();
+        long before = filter.getBefore() == null ? Long.MAX_VALUE : filter.getBefore();
+        String name = filter.getName();
+        String title = filter.getTitle();
+
+        int count = 0;
+        structureLock.readLock().lock();
+        try {
+            for (int slot = 0; slot < highWater; slot++) {
+                if ((slot & 1023) == 1023) {
+                    // срок запроса проверяется между записями, вне stripe-блокировки
+                    RequestDeadline.check();
+                }
+                ReadWriteLock stripe = stripes[slot & (STRIPES - 1)];
+                stripe.readLock().lock();
+                try {
+                    ByteBuffer slab = slabs.get(slot >>> slabShift);
+                    int base = (slot & slabMask) * RECORD_SIZE;
+                    if (slab.getLong(base + ID) == 0) {
+                        continue;
+                    }
+                    if (profession != NULL_INT && slab.get(base + PROFESSION) != profession
+                            || race != NULL_INT && slab.get(base + RACE) != race
+                            || banned != NULL_INT && slab.get(base + BANNED) != banned) {
+                        continue;
+                    }
+                    int level = slab.getInt(base + LEVEL);
+                    int experience = slab.getInt(base + EXPERIENCE);
+                    long birthday = slab.getLong(base + BIRTHDAY);
+                    if (outside(level, minLevel, maxLevel, filter.getMinLevel(), filter.getMaxLevel())
+                            || outside(experience, minExperience, maxExperience, filter.getMinExperience(), filter.getMaxExperience())
+                            || (filter.getAfter() != null || filter.getBefore() != null)
+                            && (birthday == NULL_LONG || birthday < after || birthday > before)) {
+                        continue;
+                    }
+                    if (name != null && !contains(slab, base + NAME, name)
+                            || title != null && !contains(slab, base + TITLE, title)) {
+                        continue;
+                    }
+                    count++;
+                    if (result != null) {
+                        result.add(decode(slab, base));
+                    }
+                } finally {
+                    stripe.readLock().unlock();
+                }
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        return count;
+    }
+
+    private static boolean outside(int value, int min, int max, Integer minFilter, Integer maxFilter) {
+        if (minFilter == null && maxFilter == null) {
+            return false;
+        }
+        return value == NULL_INT || value < min || value > max;
+    }
+
+    // поиск подстроки по UTF-16 символам прямо в буфере
+    private static boolean contains(ByteBuffer slab, int offset, String needle) {
+        int length = slab.get(offset);
+        if (length < 0) {
+            return false;
+        }
+        int chars = offset + 1;
+        for (int start = 0; start + needle.length() <= length; start++) {
+            int i = 0;
+            while (i < needle.length() && slab.getChar(chars + (start + i) * 2) == needle.charAt(i)) {
+                i++;
+            }
+            if (i == needle.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------- транзакции ----------
+
+    // прежние версии игроков, измененных в текущей транзакции (null - игрока не было); null вне транзакции
+    @SuppressWarnings("unchecked")
+    private Map<Long, Player> undoLog() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Long, Player> undo = (Map<Long, Player>) TransactionSynchronizationManager.getResource(this);
+        if (undo != null) {
+            return undo;
+        }
+        Map<Long, Player> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OffHeapPlayerRepository.this);
+                if (status != STATUS_COMMITTED) {
+                    created.forEach(OffHeapPlayerRepository.this::restore);
+                }
+            }
+        });
+        return created;
+    }
+
+    // запоминает версию до первой записи игрока в транзакции; вызывается до захвата блокировок
+    private void beforeWrite(Long id) {
+        Map<Long, Player> undo = undoLog();
+        if (undo != null && !undo.containsKey(id)) {
+            undo.put(id, findById(id).orElse(null));
+        }
+    }
+
+    // созданный в транзакции игрок при откате удаляется
+    private void afterInsert(Long id) {
+        Map<Long, Player> undo = undoLog();
+        if (undo != null && !undo.containsKey(id)) {
+            undo.put(id, null);
+        }
+    }
+
+    private void restore(Long id, Player before) {
+        structureLock.writeLock().lock();
+        try {
+            int slot = slots.get(id);
+            if (before == null) {
+                if (slot != LongIntHashMap.MISSING) {
+                    slots.remove(id);
+                    release(slot);
+                }
+                return;
+            }
+            if (slot == LongIntHashMap.MISSING) {
+                slot = allocateSlot();
+                slots.put(id, slot);
+            }
+            write(slot, before);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // ---------- записи ----------
+
+    // вызывается под structureLock.writeLock
+    private void clearAll() {
+        for (int slot = 0; slot < highWater; slot++) {
+            clear(slot);
+        }
+        slots.clear();
+        freeCount = 0;
+        highWater = 0;
+    }
+
+    // вызывается под structureLock.writeLock
+    private void release(int slot) {
+        clear(slot);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    // вызывается под structureLock.writeLock
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = highWater++;
+        if ((slot >>> slabShift) == slabs.size()) {
+            slabs.add(allocateSlab(slabs.size()));
+        }
+        return slot;
+    }
+
+    private ByteBuffer allocateSlab(int index) {
+        int bytes = (slabMask + 1) * RECORD_SIZE;
+        if (mappedFile == null) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+        try {
+            return mappedFile.map(FileChannel.MapMode.READ_WRITE, (long) index * bytes, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(int slot, Player player) {
+        ReadWriteLock stripe = stripes[slot & (STRIPES - 1)];
+        stripe.writeLock().lock();
+        try {
+            ByteBuffer slab = slabs.get(slot >>> slabShift);
+            int base = (slot & slabMask) * RECORD_SIZE;
+            slab.putLong(base + ID, player.getId());
+            slab.put(base + BANNED, player.getBanned() == null ? NULL_BYTE : (byte) (player.getBanned() ? 1 : 0));
+            slab.put(base + RACE, player.getRace() == null ? NULL_BYTE : (byte) player.getRace().ordinal());
+            slab.put(base + PROFESSION, player.getProfession() == null ? NULL_BYTE : (byte) player.getProfession().ordinal());
+            slab.putLong(base + BIRTHDAY, player.getBirthday() == null ? NULL_LONG : player.getBirthday().getTime());
+            slab.putInt(base + EXPERIENCE, player.getExperience() == null ? NULL_INT : player.getExperience());
+            slab.putInt(base + LEVEL, player.getLevel() == null ? NULL_INT : player.getLevel());
+            slab.putInt(base + UNTIL_NEXT_LEVEL, player.getUntilNextLevel() == null ? NULL_INT : player.getUntilNextLevel());
+            putString(slab, base + NAME, player.getName());
+            putString(slab, base + TITLE, player.getTitle());
+        } finally {
+            stripe.writeLock().unlock();
+        }
+    }
+
+    private Player read(int slot) {
+        ReadWriteLock stripe = stripes[slot & (STRIPES - 1)];
+        stripe.readLock().lock();
+        try {
+            return decode(slabs.get(slot >>> slabShift), (slot & slabMask) * RECORD_SIZE);
+        } finally {
+            stripe.readLock().unlock();
+        }
+    }
+
+    private void clear(int slot) {
+        ReadWriteLock stripe = stripes[slot & (STRIPES - 1)];
+        stripe.writeLock().lock();
+        try {
+            slabs.get(slot >>> slabShift).putLong((slot & slabMask) * RECORD_SIZE + ID, 0);
+        } finally {
+            stripe.writeLock().unlock();
+        }
+    }
+
+    private static Player decode(ByteBuffer slab, int base) {
+        Player player = new Player();
+        player.setId(slab.getLong(base + ID));
+        byte banned = slab.get(base + BANNED);
+        player.setBanned(banned == NULL_BYTE ? null : banned == 1);
+        byte race = slab.get(base + RACE);
+        player.setRace(race == NULL_BYTE ? null : RACES[race]);
+        byte profession = slab.get(base + PROFESSION);
+        player.setProfession(profession == NULL_BYTE ? null : PROFESSIONS[profession]);
+        long birthday = slab.getLong(base + BIRTHDAY);
+        player.setBirthday(birthday == NULL_LONG ? null : new Date(birthday));
+        player.setExperience(nullable(slab.getInt(base + EXPERIENCE)));
+        player.setLevel(nullable(slab.getInt(base + LEVEL)));
+        player.setUntilNextLevel(nullable(slab.getInt(base + UNTIL_NEXT_LEVEL)));
+        player.setName(getString(slab, base + NAME));
+        player.setTitle(getString(slab, base + TITLE));
+        return player;
+    }
+
+    private static Integer nullable(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    private static void putString(ByteBuffer slab, int offset, String value) {
+        if (value == null) {
+            slab.put(offset, NULL_BYTE);
+            return;
+        }
+        slab.put(offset, (byte) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            slab.putChar(offset + 1 + i * 2, value.charAt(i));
+        }
+    }
+
+    private static String getString(ByteBuffer slab, int offset) {
+        int length = slab.get(offset);
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = slab.getChar(offset + 1 + i * 2);
+        }
+        return new String(chars);
+    }
+
+    // записи фиксированной длины: значения, не влезающие в колонки таблицы, отклоняются, как это сделала бы БД
+    private static void validate(Player player) {
+        if (player.getName() != null && player.getName().length() > NAME_LENGTH) {
+            throw new DataIntegrityViolationException("name is longer than " + NAME_LENGTH + " characters");
+        }
+        if (player.getTitle() != null && player.getTitle().length() > TITLE_LENGTH) {
+            throw new DataIntegrityViolationException("title is longer than " + TITLE_LENGTH + " characters");
+        }
+    }
+}
@@ -1,23 +1,50 @@
 package com.game.repository;
 
 import com.game.entity.Player;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  Repository -
  интерфейс обеспечивает доступ к данным (БД),
  позволяет оперировать объектом в БД
 
- JpaRepository –
- интерфейс фреймворка Spring Data, предоставляющий набор стандартных методов JPA для работы с БД.
+ CrudRepository –
+ интерфейс фреймворка Spring Data, предоставляющий набор стандартных методов для работы с БД.
  Он параметризованный:
  параметр 1 - сущность
  параметр 2 - id
 
+ Методы JpaRepository (Sort, Pageable, Example, flush) сервису не нужны и не поддерживаются
+ хранилищем вне кучи (профиль memory), поэтому интерфейс ограничен CrudRepository.
+
  */
 
 @Repository
-public interface PlayerRepository extends JpaRepository<Player, Long> {
+public interface PlayerRepository extends CrudRepository<Player, Long>, PlayerRepositoryCustom {
+
+    @Override
+    List<Player> findAll();
+
+    @Override
+    List<Player> findAllById(Iterable<Long> ids);
+
+    // игроки, измененные начиная с заданного момента (для догрузки после снапшота)
+    List<Player> findByUpdatedAtGreaterThanEqual(Date since);
+
+    @Query("select p.id from Player p")
+    List<Long> findAllIds();
+
+    /**
+     * Игроки хранятся только в памяти процесса (профиль memory), а не в таблице player.
+     * Такое хранилище при старте заполняется из снапшота как есть или из таблицы,
+     * и догружать к снапшоту изменения таблицы не нужно - таблицу оно не меняет.
+     */
+    default boolean isInMemory() {
+        return false;
+    }
 }
@@ -0,0 +1,55 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import com.game.filter.PlayerFilter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Дополнительные операции PlayerRepository, которые нельзя выразить через методы Spring Data.
+ * Реализация для БД - PlayerRepositoryCustomImpl (подключается Spring Data автоматически).
+ */
+public interface PlayerRepositoryCustom {
+
+    /**
+     * Атомарно прибавляет опыт игрокам одним пакетом UPDATE (id -> прирост, прирост может быть отрицательным)
+     * и пересчитывает level и untilNextLevel. Опыт ограничивается диапазоном 0..10,000,000.
+     * Несуществующие id пропускаются. Возвращает количество измененных строк.
+     */
+    int addExperience(Map<Long, Long> deltas);
+
+    /**
+     * Изменяет у игрока id только заданные (не null) поля patch одним UPDATE; если задан experience,
+     * в том же запросе записываются пересчитанные level и untilNextLevel.
+     * Возвращает количество найденных строк: 0 - игрока нет.
+     */
+    int patch(Long id, Player patch);
+
+    /**
+     * Все игроки для выдачи наружу: проекция сразу в отдельные объекты Player в read-only транзакции,
+     * без загрузки управляемых сущностей в контекст персистентности. Изменения этих объектов в БД не попадают.
+     */
+    List<Player> findAllForRead();
+
+    /**
+     * Игроки с заданными id одним запросом IN, так же как findAllForRead. Отсутствующие id пропускаются,
+     * порядок не гарантирован.
+     */
+    List<Player> findAllByIdForRead(Collection<Long> ids);
+
+    /**
+     * Игроки, отобранные в БД по условиям фильтра, которые может отработать индекс: раса, профессия, banned,
+     * диапазоны уровня, опыта и даты рождения (индексы из миграции V2). Результат - надмножество
+     * подходящих игроков: подстроки name и title в запрос не входят, а дата рождения берется с запасом
+     * в сутки, поэтому точно отбирает PlayerFilterPlan. Читается так же, как findAllForRead.
+     */
+    List<Player> findAllForRead(PlayerFilter filter);
+
+    /**
+     * Точное количество игроков по фильтру одним COUNT(*) - только для фильтров без name, title и дат
+     * рождения (PlayerFilter.isEnumAndRangeOnly), которые findAllForRead(filter) отбирает в БД точно.
+     */
+    long countForRead(PlayerFilter filter);
+}
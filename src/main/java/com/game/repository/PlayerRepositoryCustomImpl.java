@@ -0,0 +1,178 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import com.game.entity.PlayerLevels;
+import com.game.filter.PlayerFilter;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// реализация PlayerRepositoryCustom через JDBC-пакеты и JPQL-проекции (участвует в текущей транзакции)
+public class PlayerRepositoryCustomImpl implements PlayerRepositoryCustom {
+
+    // новый опыт E = LEAST(GREATEST(experience + delta, 0), 10000000).
+    // level и untilNextLevel присваиваются раньше experience и считаются только от старого значения experience:
+    // MySQL вычисляет SET слева направо по уже обновленным колонкам, H2 - по старым, так результат одинаков.
+    private static final String NEW_EXPERIENCE = "LEAST(GREATEST(experience + ?, 0), 10000000)";
+    private static final String NEW_LEVEL = "FLOOR((SQRT(2500 + 200 * " + NEW_EXPERIENCE + ") - 50) / 100)";
+    private static final String ADD_EXPERIENCE = "UPDATE player SET " +
+            "level = " + NEW_LEVEL + ", " +
+            "untilNextLevel = 50 * (" + NEW_LEVEL + " + 1) * (" + NEW_LEVEL + " + 2) - " + NEW_EXPERIENCE + ", " +
+            "experience = " + NEW_EXPERIENCE + " " +
+            "WHERE id = ?";
+
+    // конструктор в select new создает обычные объекты: Hibernate не заводит для них записи и снимки в сессии
+    private static final String SELECT_FOR_READ = "select new com.game.entity.Player(" +
+            "p.id, p.name, p.title, p.race, p.profession, p.experience, p.level, p.untilNextLevel, p.birthday, p.banned) " +
+            "from Player p";
+
+    // запас для условий по birthday: колонка DATE, и граница в миллисекундах при сравнении в БД
+    // округляется до суток в часовом поясе соединения
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final int fetchSize;
+
+    @Autowired
+    public PlayerRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager,
+                                      @Value("${player.read.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public int addExperience(Map<Long, Long> deltas) {
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> batch.add(new Object[]{delta, delta, delta, delta, delta, id}));
+
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(ADD_EXPERIENCE, batch)) {
+            updated += Math.max(count, 0);
+        }
+        return updated;
+    }
+
+    @Override
+    public int patch(Long id, Player patch) {
+        List<String> columns = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (patch.getName() != null) {
+            columns.add("name = ?");
+            args.add(patch.getName());
+        }
+        if (patch.getTitle() != null) {
+            columns.add("title = ?");
+            args.add(patch.getTitle());
+        }
+        if (patch.getRace() != null) {
+            columns.add("race = ?");
+            args.add(patch.getRace().name());
+        }
+        if (patch.getProfession() != null) {
+            columns.add("profession = ?");
+            args.add(patch.getProfession().name());
+        }
+        if (patch.getBirthday() != null) {
+            // как @Temporal(DATE) у Player
+            columns.add("birthday = ?");
+            args.add(new java.sql.Date(patch.getBirthday().getTime()));
+        }
+        if (patch.getBanned() != null) {
+            columns.add("banned = ?");
+            args.add(patch.getBanned());
+        }
+        if (patch.getExperience() != null) {
+            int level = PlayerLevels.level(patch.getExperience());
+            columns.add("experience = ?");
+            args.add(patch.getExperience());
+            columns.add("level = ?");
+            args.add(level);
+            columns.add("untilNextLevel = ?");
+            args.add(PlayerLevels.untilNextLevel(level, patch.getExperience()));
+        }
+
+        if (columns.isEmpty()) {
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player WHERE id = ?", Integer.class, id);
+        }
+        args.add(id);
+        // MySQL Connector/J по умолчанию возвращает найденные, а не измененные строки - 0 только если игрока нет
+        return jdbcTemplate.update("UPDATE player SET " + String.join(", ", columns) + " WHERE id = ?", args.toArray());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Player> findAllForRead() {
+        return entityManager.createQuery(SELECT_FOR_READ, Player.class)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Player> findAllByIdForRead(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return entityManager.createQuery(SELECT_FOR_READ + " where p.id in :ids", Player.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Player> findAllForRead(PlayerFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        TypedQuery<Player> query = entityManager.createQuery(SELECT_FOR_READ + where(filter, parameters), Player.class)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countForRead(PlayerFilter filter) {
+        if (!filter.isEnumAndRangeOnly()) {
+            throw new IllegalArgumentException("Filter by name, title or birthday is not counted in the database");
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        TypedQuery<Long> query = entityManager.createQuery("select count(p) from Player p" + where(filter, parameters), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    // условия фильтра, которые может отработать индекс; значения параметров складываются в parameters
+    private static String where(PlayerFilter filter, Map<String, Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+        condition(conditions, parameters, "p.race = :race", "race", filter.getRace());
+        condition(conditions, parameters, "p.profession = :profession", "profession", filter.getProfession());
+        condition(conditions, parameters, "p.banned = :banned", "banned", filter.getBanned());
+        condition(conditions, parameters, "p.level >= :minLevel", "minLevel", filter.getMinLevel());
+        condition(conditions, parameters, "p.level <= :maxLevel", "maxLevel", filter.getMaxLevel());
+        condition(conditions, parameters, "p.experience >= :minExperience", "minExperience", filter.getMinExperience());
+        condition(conditions, parameters, "p.experience <= :maxExperience", "maxExperience", filter.getMaxExperience());
+        if (filter.getAfter() != null && filter.getAfter() > Long.MIN_VALUE + DAY_MILLIS) {
+            condition(conditions, parameters, "p.birthday >= :after", "after", new Date(filter.getAfter() - DAY_MILLIS));
+        }
+        if (filter.getBefore() != null && filter.getBefore() < Long.MAX_VALUE - DAY_MILLIS) {
+            condition(conditions, parameters, "p.birthday <= :before", "before", new Date(filter.getBefore() + DAY_MILLIS));
+        }
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+
+    private static void condition(List<String> conditions, Map<String, Object> parameters,
+                                  String condition, String name, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            parameters.put(name, value);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import com.game.filter.PlayerFilter;
+
+import java.util.List;
+
+/**
+ * Полный просмотр таблицы игроков с фильтрацией.
+ *
+ * Реализация по умолчанию читает всех игроков через PlayerRepository,
+ * хранилища с собственным форматом данных (например, off-heap) фильтруют прямо по своим записям.
+ */
+public interface PlayerScanner {
+
+    List<Player> findAll(PlayerFilter filter);
+
+    int count(PlayerFilter filter);
+}
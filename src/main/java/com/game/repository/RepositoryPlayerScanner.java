@@ -0,0 +1,35 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import com.game.filter.PlayerFilter;
+import com.game.filter.PlayerFilterPlan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// индексируемые условия фильтра отбираются в БД (findAllForRead(filter)), остальное - скомпилированным планом;
+// количество без name, title и дат рождения считается в БД целиком
+@Component
+public class RepositoryPlayerScanner implements PlayerScanner {
+
+    private final PlayerRepository playerRepository;
+
+    @Autowired
+    public RepositoryPlayerScanner(PlayerRepository playerRepository) {
+        this.playerRepository = playerRepository;
+    }
+
+    @Override
+    public List<Player> findAll(PlayerFilter filter) {
+        return PlayerFilterPlan.compile(filter).filter(playerRepository.findAllForRead(filter));
+    }
+
+    @Override
+    public int count(PlayerFilter filter) {
+        if (filter.isEnumAndRangeOnly()) {
+            return (int) playerRepository.countForRead(filter);
+        }
+        return PlayerFilterPlan.compile(filter).count(playerRepository.findAllForRead(filter));
+    }
+}
@@ -0,0 +1,88 @@
+package com.game.service;
+
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Выбор страницы отсортированного списка игроков без полной сортировки.
+ *
+ * Для страницы pageNumber нужны только первые (pageNumber + 1) * pageSize игроков в порядке PlayerOrder.
+ * Пока их немного по сравнению с размером списка, они отбираются ограниченной кучей за O(n log k);
+ * если страница далеко от начала и куча не выгоднее, список сортируется целиком.
+ * При равенстве поля сортировки игроки упорядочиваются по id, поэтому обе ветки дают одинаковый результат.
+ * Имена сравниваются по правилам русского языка (nameCollator), а не по кодам UTF-16 -
+ * так же, как в PlayerOrderIndex.
+ */
+public final class PlayerPageSelector {
+
+    // куча используется, пока k не больше n / HEAP_RATIO: дальше сортировка на месте обходится дешевле
+    private static final int HEAP_RATIO = 8;
+
+    private static final Comparator<Player> BY_ID = Comparator.comparing(Player::getId);
+
+    private static final Locale NAME_LOCALE = new Locale("ru", "RU");
+
+    private PlayerPageSelector() {
+    }
+
+    // Collator не потокобезопасен - каждому вызывающему свой экземпляр
+    public static Collator nameCollator() {
+        return Collator.getInstance(NAME_LOCALE);
+    }
+
+    public static Comparator<Player> comparator(PlayerOrder order) {
+        switch (order) {
+            case NAME:
+                Collator collator = nameCollator();
+                return Comparator.comparing(Player::getName, collator::compare).thenComparing(BY_ID);
+            case EXPERIENCE:
+                return Comparator.comparing(Player::getExperience).thenComparing(BY_ID);
+            case BIRTHDAY:
+                return Comparator.comparing(Player::getBirthday).thenComparing(BY_ID);
+            case LEVEL:
+                return Comparator.comparing(Player::getLevel).thenComparing(BY_ID);
+            case ID:
+            default:
+                return BY_ID;
+        }
+    }
+
+    /**
+     * Страница pageNumber размером pageSize. Список players может быть переупорядочен.
+     */
+    public static List<Player> page(List<Player> players, PlayerOrder order, int pageNumber, int pageSize) {
+        long start = (long) pageNumber * pageSize;
+        if (pageNumber < 0 || pageSize <= 0 || start >= players.size()) {
+            return new ArrayList<>();
+        }
+        int end = (int) Math.min(players.size(), start + pageSize);
+        Comparator<Player> comparator = comparator(order == null ? PlayerOrder.ID : order);
+
+        if ((long) end * HEAP_RATIO > players.size()) {
+            players.sort(comparator);
+            return new ArrayList<>(players.subList((int) start, end));
+        }
+
+        // max-куча из end лучших игроков: вершина - худший из отобранных
+        PriorityQueue<Player> heap = new PriorityQueue<>(end, comparator.reversed());
+        for (Player player : players) {
+            if (heap.size() < end) {
+                heap.add(player);
+            } else if (comparator.compare(player, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(player);
+            }
+        }
+
+        List<Player> best = new ArrayList<>(heap);
+        best.sort(comparator);
+        return new ArrayList<>(best.subList((int) start, end));
+    }
+}
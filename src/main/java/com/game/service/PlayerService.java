@@ -1,16 +1,63 @@
 package com.game.service;
 
+import com.game.cache.PlayerLookupBatcher;
+import com.game.cache.PlayerQueryCache;
+import com.game.cache.PlayerReadCoalescer;
+import com.game.changelog.PlayerChangelog;
+import com.game.circuit.DatabaseCircuitBreaker;
+import com.game.circuit.StaleReadCache;
 import com.game.controller.PlayerOrder;
+import com.game.dto.CircuitBreakerStats;
+import com.game.dto.CoalescingStats;
+import com.game.dto.ExperiencePoint;
+import com.game.dto.ExperienceRollup;
+import com.game.dto.IdFilterStats;
+import com.game.dto.PlayerAnalytics;
+import com.game.dto.PlayerChange;
+import com.game.dto.PlayerRank;
+import com.game.dto.PlayerStats;
 import com.game.entity.Player;
+import com.game.entity.PlayerLevels;
 import com.game.entity.Profession;
 import com.game.entity.Race;
+import com.game.deadline.RequestDeadline;
 import com.game.exceptions.BadRequestException;
+import com.game.exceptions.DatabaseUnavailableException;
+import com.game.exceptions.DeadlineExceededException;
 import com.game.exceptions.PlayerNotFoundException;
+import com.game.exceptions.ServiceOverloadedException;
+import com.game.experience.ExperienceAccumulator;
+import com.game.filter.PlayerFilter;
+import com.game.filter.PlayerFilterPlan;
+import com.game.history.ExperienceHistory;
+import com.game.index.ExperienceRankIndex;
+import com.game.index.PlayerCountCube;
+import com.game.index.PlayerIdFilter;
+import com.game.index.PlayerOrderIndex;
+import com.game.index.TitleWordSketches;
 import com.game.repository.PlayerRepository;
+import com.game.repository.PlayerScanner;
+import com.game.snapshot.PlayerSnapshotService;
+import com.game.writebehind.PlayerWriteBehind;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Напрямую использовать Repositories для получение данных на Пользовательский Интерфейс не принято и считается плохим тоном,
@@ -28,10 +75,113 @@ import java.util.*;
 public class PlayerService {
 
     public final PlayerRepository playerRepository;
+    // таблица player; в профиле memory playerRepository - хранилище вне кучи, и таблица нужна только для старта
+    private final PlayerRepository tableRepository;
+    private final PlayerScanner playerScanner;
+    private static final int MAX_QUANTILES = 20;
+
+    private final ExperienceRankIndex rankIndex;
+    private final PlayerCountCube countCube;
+    private final PlayerIdFilter idFilter;
+    private final PlayerOrderIndex orderIndex;
+    private final TitleWordSketches titleWordSketches;
+    private final PlayerQueryCache queryCache;
+    private final PlayerReadCoalescer readCoalescer;
+    private final PlayerLookupBatcher lookupBatcher;
+    private final PlayerSnapshotService snapshotService;
+    private final PlayerChangelog changelog;
+    private final ExperienceAccumulator experienceAccumulator;
+    private final PlayerWriteBehind writeBehind;
+    private final ExperienceHistory experienceHistory;
+    private final StaleReadCache staleReads;
+    private final DatabaseCircuitBreaker circuitBreaker;
+    private final List<PlayerStateListener> listeners;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean experienceAckFlushed;
+    private final long experienceAckTimeoutMillis;
+    private final int maxIdsPerRequest;
 
     @Autowired
-    public PlayerService(PlayerRepository playerRepository) {
+    public PlayerService(PlayerRepository playerRepository,
+                         @Qualifier("playerRepository") PlayerRepository tableRepository, PlayerScanner playerScanner,
+                         ExperienceRankIndex rankIndex, PlayerCountCube countCube, PlayerIdFilter idFilter,
+                         PlayerOrderIndex orderIndex, TitleWordSketches titleWordSketches,
+                         PlayerQueryCache queryCache,
+                         PlayerReadCoalescer readCoalescer, PlayerLookupBatcher lookupBatcher,
+                         PlayerSnapshotService snapshotService, PlayerChangelog changelog,
+                         ExperienceAccumulator experienceAccumulator, PlayerWriteBehind writeBehind,
+                         ExperienceHistory experienceHistory,
+                         StaleReadCache staleReads, DatabaseCircuitBreaker circuitBreaker,
+                         List<PlayerStateListener> listeners, PlatformTransactionManager transactionManager,
+                         @Value("${player.experience.ack:buffered}") String experienceAck,
+                         @Value("${player.experience.ack-timeout-ms:5000}") long experienceAckTimeoutMillis,
+                         @Value("${player.multi-get.max-ids:1000}") int maxIdsPerRequest) {
         this.playerRepository = playerRepository;
+        this.tableRepository = tableRepository;
+        this.playerScanner = playerScanner;
+        this.rankIndex = rankIndex;
+        this.countCube = countCube;
+        this.idFilter = idFilter;
+        this.orderIndex = orderIndex;
+        this.titleWordSketches = titleWordSketches;
+        this.queryCache = queryCache;
+        this.readCoalescer = readCoalescer;
+        this.lookupBatcher = lookupBatcher;
+        this.snapshotService = snapshotService;
+        this.changelog = changelog;
+        this.experienceAccumulator = experienceAccumulator;
+        this.writeBehind = writeBehind;
+        this.experienceHistory = experienceHistory;
+        this.staleReads = staleReads;
+        this.circuitBreaker = circuitBreaker;
+        this.listeners = listeners;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.experienceAckFlushed = "flushed".equalsIgnoreCase(experienceAck);
+        this.experienceAckTimeoutMillis = experienceAckTimeoutMillis;
+        this.maxIdsPerRequest = maxIdsPerRequest;
+    }
+
+    /**
+     * Строит in-memory структуры при старте контекста.
+     * Если есть снапшот - берем его и догружаем из БД только изменения, иначе читаем всю таблицу.
+     * В профиле memory хранилище вне кучи тоже заполняется отсюда - оно один из слушателей.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void warmUp() {
+        List<Player> players = writeBehind.apply(snapshotService.loadWithCatchUp().orElseGet(tableRepository::findAll));
+        listeners.forEach(listener -> listener.reload(players));
+    }
+
+    /**
+     * Заново строит все in-memory структуры по содержимому таблицы.
+     * Нужен после изменения таблицы в обход сервиса.
+     */
+    public void reloadState() {
+        List<Player> players = writeBehind.apply(playerRepository.findAllForRead());
+        listeners.forEach(listener -> listener.reload(players));
+    }
+
+    private Player saved(Player player) {
+        afterCommit(() -> listeners.forEach(listener -> listener.playerSaved(player)));
+        return player;
+    }
+
+    private void deleted(Long id) {
+        afterCommit(() -> listeners.forEach(listener -> listener.playerDeleted(id)));
+    }
+
+    // in-memory структуры узнают об изменении только после коммита; вне транзакции - сразу
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     /**
@@ -40,61 +190,106 @@ public class PlayerService {
      * Поиск по полям name и title происходить по частичному соответствию.
      * Например, если в БД есть игрок с именем «Камираж», а параметр name задан как «ир» -
      * такой игрок должен отображаться в результатах (Камираж).
+     *
+     * Одинаковые одновременные запросы выполняются один раз (PlayerReadCoalescer).
+     * Игроки читаются через PlayerScanner, а игроки с незаписанными изменениями (write-behind) -
+     * заново по id с наложенным overlay и проверяются фильтром сами.
+     */
+    public List<Player> getPlayerList(PlayerFilter filter) {
+        return readCoalescer.list(filter, () -> {
+            Set<Long> pendingIds = writeBehind.pendingIds();
+            List<Player> players = playerScanner.findAll(filter);
+            if (pendingIds.isEmpty()) {
+                return players;
+            }
+            // незаписанные изменения могут менять попадание под фильтр - строки из БД по этим id не годятся
+            players.removeIf(player -> pendingIds.contains(player.getId()));
+            players.addAll(PlayerFilterPlan.compile(filter)
+                    .filter(writeBehind.apply(playerRepository.findAllByIdForRead(pendingIds))));
+            return players;
+        });
+    }
+
+    /**
+     * страница отфильтрованного и отсортированного списка игроков
+     *
      * pageNumber – параметр, который отвечает за номер отображаемой страницы при использовании пейджинга.
      * Нумерация начинается с нуля
      * pageSize – параметр, который отвечает за количество результатов на одной странице при пейджинге
+     *
+     * Повторные запросы с теми же параметрами между записями отдаются из кэша.
+     * Страница берется обходом упорядоченного индекса (PlayerOrderIndex), пока он не построен -
+     * отбором из отфильтрованного списка. Если БД недоступна, отдается последняя успешно построенная
+     * такая же страница (StaleReadCache).
      */
-    public List<Player> getPlayerList(String name, String title, Race race, Profession profession,
-                                      Long after, Long before, Boolean banned, Integer minExperience,
-                                      Integer maxExperience, Integer minLevel, Integer maxLevel) {
+    public List<Player> getPlayersPage(PlayerFilter filter, PlayerOrder order, Integer pageNumber, Integer pageSize) {
+        List<Player> players;
+        try {
+            players = queryCache.getPage(filter, order, pageNumber, pageSize, () -> {
+                List<Player> page = orderIndex.page(filter, order, pageNumber, pageSize);
+                return page != null ? page : PlayerPageSelector.page(getPlayerList(filter), order, pageNumber, pageSize);
+            });
+        } catch (DataAccessException | TransactionException e) {
+            return staleReads.page(filter, order, pageNumber, pageSize, e,
+                    () -> getPlayersPage(filter, order, pageNumber, pageSize));
+        }
+        staleReads.rememberPage(filter, order, pageNumber, pageSize, players);
+        return players;
+    }
 
-        List<Player> playerList = new ArrayList<>();
+    /**
+     * получать количество игроков, которые соответствуют фильтрам
+     *
+     * Если заданы только фильтры по расе, профессии, banned и уровню - ответ берется из куба счетчиков
+     * без обращения к БД. Иначе считаем по отфильтрованному списку.
+     */
+    public Integer countPlayers(PlayerFilter filter) {
 
-        playerRepository.findAll().forEach(player -> {
+        if (filter.isEnumAndLevelOnly()) {
+            return countCube.count(filter.getRace(), filter.getProfession(), filter.getBanned(),
+                    filter.getMinLevel(), filter.getMaxLevel());
+        }
 
-            if (name != null && !player.getName().contains(name))
-                return;
-            if (title != null && !player.getTitle().contains(title))
-                return;
-            if (race != null && player.getRace() != race) {
-                return;
-            }
-            if (profession != null && player.getProfession() != profession) {
-                return;
-            }
+        Set<Long> pendingIds = writeBehind.pendingIds();
+        if (pendingIds.isEmpty()) {
+            return playerScanner.count(filter);
+        }
+        // игроки с незаписанными изменениями считаются по версии с overlay, а не по строке из БД
+        List<Player> rows = playerRepository.findAllByIdForRead(pendingIds);
+        PlayerFilterPlan plan = PlayerFilterPlan.compile(filter);
+        return playerScanner.count(filter) - plan.count(rows) + plan.count(writeBehind.apply(rows));
+    }
 
-            if (after != null) {
-                Date afterDate = new Date(after);
-                if (player.getBirthday().before(afterDate)) {
-                    return;
-                }
-            }
-            if (before != null) {
-                Date beforeDate = new Date(before);
-                if (player.getBirthday().after(beforeDate)) {
-                    return;
-                }
-            }
+    // распределение игроков по расам и профессиям
+    public PlayerStats getStats() {
+        return countCube.stats();
+    }
 
-            if (banned != null && player.getBanned().booleanValue() != banned.booleanValue()) {
-                return;
-            }
-            if (minExperience != null && player.getExperience().compareTo(minExperience) < 0) {
-                return;
-            }
-            if (maxExperience != null && player.getExperience().compareTo(maxExperience) > 0) {
-                return;
-            }
-            if (minLevel != null && player.getLevel().compareTo(minLevel) < 0) {
-                return;
-            }
-            if (maxLevel != null && player.getLevel().compareTo(maxLevel) > 0) {
-                return;
-            }
-            playerList.add(player);
-        });
+    /**
+     * аналитика по срезу игроков для дашборда: опыт и уровень на квантилях и количество различных слов в титулах
+     *
+     * Все берется из in-memory индексов, без обращения к БД. Уровень монотонно зависит от опыта,
+     * поэтому его квантили - уровни, соответствующие квантилям опыта.
+     */
+    public PlayerAnalytics getAnalytics(Race race, Profession profession, List<Double> quantiles) {
+
+        if (quantiles.isEmpty() || quantiles.size() > MAX_QUANTILES
+                || quantiles.stream().anyMatch(q -> q == null || !(q >= 0 && q <= 1))) {
+            throw new BadRequestException();
+        }
 
-        return playerList;
+        double[] points = quantiles.stream().mapToDouble(Double::doubleValue).toArray();
+        int[] experience = rankIndex.experienceAt(race, profession, points);
+        Map<String, Integer> experienceQuantiles = new LinkedHashMap<>();
+        Map<String, Integer> levelQuantiles = new LinkedHashMap<>();
+        if (experience != null) {
+            for (int i = 0; i < points.length; i++) {
+                experienceQuantiles.put(String.valueOf(points[i]), experience[i]);
+                levelQuantiles.put(String.valueOf(points[i]), PlayerLevels.level(experience[i]));
+            }
+        }
+        return new PlayerAnalytics(race, profession, rankIndex.size(race, profession), experienceQuantiles,
+                levelQuantiles, titleWordSketches.estimate(race, profession), titleWordSketches.standardError());
     }
 
     // проверяем, что длина значения параметра “name” и "title" не превышает размер 12 и 30 соответсвенно
@@ -120,7 +315,7 @@ public class PlayerService {
     // проверяем, что опыт не находится вне заданных пределов
     private boolean isValidExperience(Integer experience) {
         // Опыт персонажа. Диапазон значений 0..10,000,000
-        return experience >= 0 && experience <= 10000000;
+        return experience >= 0 && experience <= PlayerLevels.MAX_EXPERIENCE;
     }
 
     // проверяем, что дата регистрации не находятся вне заданных пределов
@@ -138,14 +333,15 @@ public class PlayerService {
 
     // текущий уровень персонажа
     private Integer calculateLevel(Player player) {
-        return (int) ((Math.sqrt(2500 + 200 * player.getExperience()) - 50) / 100);
+        return PlayerLevels.level(player.getExperience());
     }
 
     // опыт необходимый для достижения следующего уровня
     private Integer calculateUntilNextLevel(Player player) {
-        return 50 * (player.getLevel() + 1) * (player.getLevel() + 2) - player.getExperience();
+        return PlayerLevels.untilNextLevel(player.getLevel(), player.getExperience());
     }
 
+    @Transactional
     public Player createPlayer(Player player) {
 
         if (isValidParams(player)
@@ -157,118 +353,444 @@ public class PlayerService {
             player.setLevel(calculateLevel(player));
             player.setUntilNextLevel(calculateUntilNextLevel(player));
 
-            return playerRepository.save(player);
+            Player created = playerRepository.save(player);
+            idFilter.add(created.getId());
+            changelog.append(PlayerChangelog.CREATE, created.getId(), PlayerChangelog.fieldsOf(created));
+
+            return saved(created);
 
         } else {
             throw new BadRequestException();
         }
     }
 
+    /**
+     * редактировать характеристики существующего игрока
+     *
+     * Строка читается один раз, ответ собирается из нее и переданных полей без повторного чтения.
+     * В БД уходит один UPDATE только с переданными (не null) полями, а если передан experience -
+     * и с пересчитанными level и untilNextLevel. Если игрока удалили между чтением и UPDATE,
+     * это видно по количеству найденных строк.
+     *
+     * В режиме write-behind транзакция не открывается: текущее состояние читается read-only проекцией
+     * с наложенными незаписанными изменениями, а само изменение дописывается в журнал write-behind.
+     */
     public Player updatePlayer(Long id, Player player) {
 
         if (id <= 0) {
             throw new BadRequestException();
         }
 
-        if (!playerRepository.existsById(id)) {
+        if (!idFilter.mightContain(id)) {
             throw new PlayerNotFoundException();
         }
 
-        Player changedPlayer = playerRepository.findById(id).get();
+        if (writeBehind.isEnabled()) {
+            return updateBehind(id, player);
+        }
+        return transactionTemplate.execute(status -> updateNow(id, player));
+    }
+
+    private Player updateNow(Long id, Player player) {
+
+        Player current = playerRepository.findById(id).orElseThrow(() -> {
+            idFilter.recordFalsePositive();
+            return new PlayerNotFoundException();
+        });
+
+        validateUpdate(player);
 
-        if (player.getName() != null) {
-            changedPlayer.setName(player.getName());
+        // строкой current управляет JPA - меняем копию, иначе при коммите уйдет UPDATE всех колонок
+        Player patch = patchOf(player);
+        Player changedPlayer = writeBehind.apply(PlayerWriteBehind.copyOf(current));
+        Map<String, Object> before = PlayerChangelog.fieldsOf(changedPlayer);
+        applyPatch(changedPlayer, patch);
+
+        Map<String, Object> changes = PlayerChangelog.diff(before, PlayerChangelog.fieldsOf(changedPlayer));
+        if (!changes.isEmpty()) {
+            if (playerRepository.patch(id, patch) == 0) {
+                throw new PlayerNotFoundException();
+            }
+            changelog.append(PlayerChangelog.UPDATE, id, changes);
         }
-        if (player.getTitle() != null) {
-            changedPlayer.setTitle(player.getTitle());
+
+        return saved(changedPlayer);
+    }
+
+    // запись в БД и журнал изменений - позже, при сбросе write-behind
+    private Player updateBehind(Long id, Player player) {
+
+        Player changedPlayer = loadByIds(Collections.singleton(id)).get(id);
+        if (changedPlayer == null) {
+            idFilter.recordFalsePositive();
+            throw new PlayerNotFoundException();
         }
-        if (player.getRace() != null) {
-            changedPlayer.setRace(player.getRace());
+
+        validateUpdate(player);
+
+        // проекция - отдельный объект, его можно менять
+        Player patch = patchOf(player);
+        applyPatch(changedPlayer, patch);
+        writeBehind.write(id, patch);
+        return saved(changedPlayer);
+    }
+
+    private void validateUpdate(Player player) {
+        if ((player.getBirthday() != null && !isValidDate(player.getBirthday()))
+                || (player.getExperience() != null && !isValidExperience(player.getExperience()))) {
+            throw new BadRequestException();
         }
-        if (player.getProfession() != null) {
-            changedPlayer.setProfession(player.getProfession());
+    }
+
+    // поля, которые клиент может менять
+    private static Player patchOf(Player player) {
+        Player patch = new Player();
+        patch.setName(player.getName());
+        patch.setTitle(player.getTitle());
+        patch.setRace(player.getRace());
+        patch.setProfession(player.getProfession());
+        patch.setBirthday(player.getBirthday());
+        patch.setBanned(player.getBanned());
+        patch.setExperience(player.getExperience());
+        return patch;
+    }
+
+    private void applyPatch(Player player, Player patch) {
+        if (patch.getName() != null) {
+            player.setName(patch.getName());
         }
-        if (player.getBirthday() != null) {
-            if (isValidDate(player.getBirthday())) {
-                changedPlayer.setBirthday(player.getBirthday());
-            } else {
+        if (patch.getTitle() != null) {
+            player.setTitle(patch.getTitle());
+        }
+        if (patch.getRace() != null) {
+            player.setRace(patch.getRace());
+        }
+        if (patch.getProfession() != null) {
+            player.setProfession(patch.getProfession());
+        }
+        if (patch.getBirthday() != null) {
+            player.setBirthday(patch.getBirthday());
+        }
+        if (patch.getBanned() != null) {
+            player.setBanned(patch.getBanned());
+        }
+        if (patch.getExperience() != null) {
+            player.setExperience(patch.getExperience());
+        }
+        player.setLevel(calculateLevel(player));
+        player.setUntilNextLevel(calculateUntilNextLevel(player));
+    }
+
+    @Transactional
+    public void deleteById(Long id) {
+
+        if (id <= 0) {
+            throw new BadRequestException();
+        }
+
+        if (!exists(id)) {
+            throw new PlayerNotFoundException();
+        }
+
+        playerRepository.deleteById(id);
+        changelog.append(PlayerChangelog.DELETE, id, Collections.emptyMap());
+        afterCommit(() -> writeBehind.discard(id));
+        deleted(id);
+    }
+
+    /**
+     * начислить опыт нескольким игрокам (id -> прирост, прирост может быть отрицательным).
+     *
+     * Начисления накапливаются в памяти и записываются пакетом раз в player.experience.flush-interval-ms,
+     * level и untilNextLevel пересчитываются при записи. Если хотя бы одного игрока нет, ничего не начисляется (404);
+     * начисление игроку, удаленному до записи, пропускается.
+     * При player.experience.ack=flushed метод ждет записи в БД, иначе возвращается сразу.
+     * Если запись не дождались, начисления остаются в очереди и будут записаны позже, а клиент получает
+     * 503 (БД недоступна или сброс не успел за player.experience.ack-timeout-ms) или 504 (истек срок запроса).
+     */
+    public void addExperience(Map<Long, Long> deltas) {
+
+        if (deltas == null || deltas.isEmpty()) {
+            throw new BadRequestException();
+        }
+
+        for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+            if (delta.getKey() == null || delta.getKey() <= 0 || delta.getValue() == null || delta.getValue() == 0
+                    || Math.abs(delta.getValue()) > PlayerLevels.MAX_EXPERIENCE) {
                 throw new BadRequestException();
             }
         }
 
-        if (player.getBanned() != null) {
-            changedPlayer.setBanned(player.getBanned());
+        // начисления не копятся в памяти, пока БД недоступна
+        circuitBreaker.checkAvailable();
+
+        if (!allExist(deltas.keySet())) {
+            throw new PlayerNotFoundException();
         }
 
-        if (player.getExperience() != null) {
-            if (isValidExperience(player.getExperience())) {
-                changedPlayer.setExperience(player.getExperience());
-            } else {
-                throw new BadRequestException();
+        CompletableFuture<Void> flushed = null;
+        for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+            flushed = experienceAccumulator.add(delta.getKey(), delta.getValue());
+        }
+
+        if (experienceAckFlushed) {
+            awaitFlushed(flushed);
+        }
+    }
+
+    // ждет записи начислений не дольше player.experience.ack-timeout-ms и оставшегося срока запроса
+    private void awaitFlushed(CompletableFuture<Void> flushed) {
+        long ackNanos = TimeUnit.MILLISECONDS.toNanos(experienceAckTimeoutMillis);
+        long remaining = RequestDeadline.remainingNanos();
+        try {
+            flushed.get(Math.min(ackNanos, remaining), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Request cancelled");
+        } catch (TimeoutException e) {
+            // неудачный сброс повторяется, а не завершает ожидание ошибкой - о БД говорит состояние автомата
+            if (!circuitBreaker.isClosed()) {
+                throw new DatabaseUnavailableException("Experience was not flushed: database is unavailable");
+            }
+            if (remaining <= ackNanos) {
+                throw new DeadlineExceededException("Request deadline exceeded before experience was flushed");
+            }
+            throw new ServiceOverloadedException("Experience was not flushed in time");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataAccessException || cause instanceof TransactionException) {
+                throw new DatabaseUnavailableException("Experience was not flushed: " + cause.getMessage());
             }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
         }
+    }
 
-        changedPlayer.setLevel(calculateLevel(changedPlayer));
-        changedPlayer.setUntilNextLevel(calculateUntilNextLevel(changedPlayer));
+    /**
+     * записывает накопленные начисления опыта одной транзакцией (вызывается ExperienceFlusher)
+     */
+    @Transactional
+    public void applyExperience(Map<Long, Long> deltas) {
+
+        if (playerRepository.addExperience(deltas) == 0) {
+            return;
+        }
 
-        return playerRepository.save(changedPlayer);
+        for (Player player : playerRepository.findAllById(deltas.keySet())) {
+            Map<String, Object> changes = new LinkedHashMap<>();
+            changes.put("experience", player.getExperience());
+            changes.put("level", player.getLevel());
+            changes.put("untilNextLevel", player.getUntilNextLevel());
+            changelog.append(PlayerChangelog.UPDATE, player.getId(), changes);
+            saved(writeBehind.apply(player));
+        }
     }
 
-    public void deleteById(Long id) {
+    // игрок по id; как и списки, читается read-only проекцией в отдельный объект.
+    // Одновременные чтения разных id объединяются в один запрос IN (PlayerLookupBatcher).
+    // Если БД недоступна, отдается последняя успешно прочитанная версия игрока (StaleReadCache)
+    public Player findById(Long id) {
 
         if (id <= 0) {
             throw new BadRequestException();
         }
 
-        if (!playerRepository.existsById(id)) {
+        if (!idFilter.mightContain(id)) {
             throw new PlayerNotFoundException();
         }
 
-        playerRepository.deleteById(id);
+        Player player;
+        try {
+            player = readCoalescer.find(id, () -> lookupBatcher.load(id, this::loadByIds));
+        } catch (DataAccessException | TransactionException e) {
+            return staleReads.player(id, e, () -> findById(id));
+        }
+        if (player == null) {
+            idFilter.recordFalsePositive();
+            throw new PlayerNotFoundException();
+        }
+        staleReads.rememberPlayer(player);
+        return player;
     }
 
-    public Player findById(Long id) {
+    /**
+     * игроки по списку id одним запросом IN
+     *
+     * Порядок ответа - порядок ids, повторы убираются, отсутствующие игроки пропускаются.
+     */
+    public List<Player> getPlayersByIds(List<Long> ids) {
+
+        if (ids.isEmpty() || ids.size() > maxIdsPerRequest || ids.stream().anyMatch(id -> id == null || id <= 0)) {
+            throw new BadRequestException();
+        }
+
+        Set<Long> candidates = new LinkedHashSet<>();
+        ids.forEach(id -> {
+            if (idFilter.mightContain(id)) {
+                candidates.add(id);
+            }
+        });
+
+        Map<Long, Player> players = loadByIds(candidates);
+        List<Player> result = new ArrayList<>(players.size());
+        candidates.forEach(id -> {
+            Player player = players.get(id);
+            if (player == null) {
+                idFilter.recordFalsePositive();
+            } else {
+                result.add(player);
+            }
+        });
+        return result;
+    }
+
+    // чтение игроков по набору id с наложенными незаписанными изменениями
+    private Map<Long, Player> loadByIds(Collection<Long> ids) {
+        Map<Long, Player> players = new HashMap<>();
+        if (!ids.isEmpty()) {
+            playerRepository.findAllByIdForRead(ids)
+                    .forEach(player -> players.put(player.getId(), writeBehind.apply(player)));
+        }
+        return players;
+    }
+
+    // существует ли игрок: "точно нет" фильтра Блума отвечается без обращения к БД
+    private boolean exists(Long id) {
+        if (!idFilter.mightContain(id)) {
+            return false;
+        }
+        if (playerRepository.existsById(id)) {
+            return true;
+        }
+        idFilter.recordFalsePositive();
+        return false;
+    }
+
+    // существуют ли все игроки: "точно нет" фильтра Блума отвечается без обращения к БД, остальные - одним запросом IN
+    private boolean allExist(Collection<Long> ids) {
+        if (ids.size() == 1) {
+            return exists(ids.iterator().next());
+        }
+        if (!ids.stream().allMatch(idFilter::mightContain)) {
+            return false;
+        }
+        if (playerRepository.findAllByIdForRead(ids).size() == ids.size()) {
+            return true;
+        }
+        idFilter.recordFalsePositive();
+        return false;
+    }
+
+    // состояние фильтра Блума по id
+    public IdFilterStats getIdFilterStats() {
+        return idFilter.getStats();
+    }
+
+    // статистика объединения одинаковых одновременных чтений
+    public CoalescingStats getCoalescingStats() {
+        return readCoalescer.getStats();
+    }
+
+    // состояние автомата обращений к БД и сколько ответов отдано из последних известных данных
+    public CircuitBreakerStats getCircuitBreakerStats() {
+        return circuitBreaker.stats(staleReads.getServed());
+    }
+
+    /**
+     * изменения игроков после заданного номера - для инкрементальной синхронизации.
+     * Клиент запоминает seq последней полученной записи и передает его в следующем запросе.
+     */
+    public List<PlayerChange> getChanges(Long since, Integer limit) {
+
+        if (since == null || since < 0 || limit == null || limit <= 0 || limit > 10000) {
+            throw new BadRequestException();
+        }
+
+        return changelog.changesSince(since, limit);
+    }
+
+    // место игрока в рейтинге по опыту
+    public PlayerRank getRank(Long id) {
 
         if (id <= 0) {
             throw new BadRequestException();
         }
 
-        if (!playerRepository.existsById(id)) {
+        PlayerRank rank = rankIndex.rank(id);
+        if (rank == null) {
             throw new PlayerNotFoundException();
         }
+        return rank;
+    }
 
-        return playerRepository.findById(id).get();
-    }
-
-    public List<Player> sortPlayers(List<Player> list, PlayerOrder order) {
-        if (order != null) {
-            switch (order) {
-                case ID:
-                    //list.sort(Comparator.comparing(Player -> Player.getId()));
-                    list.sort(Comparator.comparing(Player::getId));
-                    break;
-                case NAME:
-                    list.sort(Comparator.comparing(Player::getName));
-                    break;
-                case EXPERIENCE:
-                    list.sort(Comparator.comparing(Player::getExperience));
-                    break;
-                case BIRTHDAY:
-                    list.sort(Comparator.comparing(Player::getBirthday));
-                    break;
-            }
+    public Double getPercentile(Long id) {
+
+        if (id <= 0) {
+            throw new BadRequestException();
         }
-        return list;
+
+        Double percentile = rankIndex.percentile(id);
+        if (percentile == null) {
+            throw new PlayerNotFoundException();
+        }
+        return percentile;
     }
 
-    public List<Player> sortPage(List<Player> list, Integer pageNumber, Integer pageSize) {
+    /**
+     * история опыта игрока с from по to (мс, включительно)
+     *
+     * Без from - с начала истории, без to - до текущего момента.
+     */
+    public List<ExperiencePoint> getExperienceHistory(Long id, Long from, Long to) {
+        long start = from == null ? 0 : from;
+        long end = to == null ? System.currentTimeMillis() : to;
+        checkHistoryRequest(id, start, end);
+        return experienceHistory.points(id, start, end);
+    }
 
-        int start = pageNumber * pageSize;
-        int end = start + pageSize;
+    // история опыта игрока, свернутая по интервалам длиной step мс
+    public List<ExperienceRollup> getExperienceRollup(Long id, Long from, Long to, Long step) {
+        long start = from == null ? 0 : from;
+        long end = to == null ? System.currentTimeMillis() : to;
+        if (step == null || step <= 0) {
+            throw new BadRequestException();
+        }
+        checkHistoryRequest(id, start, end);
+        return experienceHistory.rollup(id, start, end, step);
+    }
 
-        if (end > list.size())
-            end = list.size();
+    private void checkHistoryRequest(Long id, long from, long to) {
+        if (id <= 0 || from < 0 || from > to) {
+            throw new BadRequestException();
+        }
+        if (!exists(id)) {
+            throw new PlayerNotFoundException();
+        }
+    }
+
+    // лучшие count игроков по опыту, опционально в пределах расы и/или профессии
+    public List<Player> getTopPlayers(Race race, Profession profession, Integer count) {
 
-        return list.subList(start, end);
+        if (count == null || count <= 0) {
+            throw new BadRequestException();
+        }
+
+        List<Long> ids = rankIndex.top(race, profession, count);
+        Map<Long, Player> players = new HashMap<>();
+        playerRepository.findAllById(ids).forEach(player -> players.put(player.getId(), writeBehind.apply(player)));
+
+        List<Player> top = new ArrayList<>(ids.size());
+        ids.forEach(id -> {
+            Player player = players.get(id);
+            if (player != null) {
+                top.add(player);
+            }
+        });
+        return top;
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.game.service;
+
+import com.game.entity.Player;
+
+import java.util.Collection;
+
+/**
+ * Слушатель изменений таблицы игроков.
+ *
+ * Через этот интерфейс PlayerService оповещает in-memory структуры (индексы, кэши, счетчики)
+ * о каждой записи, чтобы им не приходилось заново читать всю таблицу.
+ * reload вызывается при старте и в случае, когда таблица была изменена в обход сервиса.
+ */
+public interface PlayerStateListener {
+
+    // полная перестройка состояния по текущему содержимому таблицы
+    void reload(Collection<Player> players);
+
+    // игрок создан или изменен (передается уже сохраненная версия)
+    void playerSaved(Player player);
+
+    // игрок удален
+    void playerDeleted(Long id);
+}
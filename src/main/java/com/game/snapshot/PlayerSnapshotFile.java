@@ -0,0 +1,237 @@
+package com.game.snapshot;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Бинарный файл снапшота игроков.
+ *
+ * Формат (big-endian):
+ * - заголовок: magic, версия формата, high-water mark (мс), число блоков, число записей, CRC32 заголовка;
+ * - таблица блоков: для каждого блока смещение, длина, число записей и CRC32 содержимого; затем CRC32 таблицы;
+ * - блоки с записями: id, race, profession, banned, birthday, experience, level, untilNextLevel, name, title.
+ *
+ * Блоки независимы, поэтому при чтении каждый отображается в память отдельно и разбирается параллельно.
+ * Запись идет во временный файл, который затем атомарно подменяет старый снапшот.
+ */
+public final class PlayerSnapshotFile {
+
+    private static final int MAGIC = 0x504C534E; // "PLSN"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4;
+    private static final int CHUNK_ENTRY_SIZE = 8 + 4 + 4 + 4;
+
+    private static final Race[] RACES = Race.values();
+    private static final Profession[] PROFESSIONS = Profession.values();
+
+    private final long highWaterMark;
+    private final List<Player> players;
+
+    private PlayerSnapshotFile(long highWaterMark, List<Player> players) {
+        this.highWaterMark = highWaterMark;
+        this.players = players;
+    }
+
+    // момент, на который снапшот содержит все изменения
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public static void write(Path file, long highWaterMark, Collection<Player> players, int chunkSize) throws IOException {
+        List<Player> all = new ArrayList<>(players);
+        int chunkCount = (all.size() + chunkSize - 1) / chunkSize;
+
+        List<byte[]> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(encodeChunk(all.subList(i * chunkSize, Math.min(all.size(), (i + 1) * chunkSize))));
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(highWaterMark).putInt(chunkCount).putInt(all.size());
+        header.putInt(crc(header.array(), 0, header.position()));
+
+        ByteBuffer table = ByteBuffer.allocate(chunkCount * CHUNK_ENTRY_SIZE + 4);
+        long offset = HEADER_SIZE + table.capacity();
+        for (int i = 0; i < chunkCount; i++) {
+            byte[] chunk = chunks.get(i);
+            int records = Math.min(chunkSize, all.size() - i * chunkSize);
+            table.putLong(offset).putInt(chunk.length).putInt(records).putInt(crc(chunk, 0, chunk.length));
+            offset += chunk.length;
+        }
+        table.putInt(crc(table.array(), 0, table.position()));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.wrap(header.array()));
+            writeFully(channel, ByteBuffer.wrap(table.array()));
+            for (byte[] chunk : chunks) {
+                writeFully(channel, ByteBuffer.wrap(chunk));
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Читает снапшот, разбирая блоки параллельно.
+     * При несовпадении magic, версии или контрольной суммы бросает IOException.
+     */
+    public static PlayerSnapshotFile read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not a player snapshot: " + file);
+            }
+            checkCrc(header, 0, HEADER_SIZE - 4, header.getInt(HEADER_SIZE - 4), "header");
+            long highWaterMark = header.getLong(8);
+            int chunkCount = header.getInt(16);
+            int recordCount = header.getInt(20);
+
+            int tableSize = chunkCount * CHUNK_ENTRY_SIZE;
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, tableSize + 4);
+            checkCrc(table, 0, tableSize, table.getInt(tableSize), "chunk table");
+
+            List<List<Player>> chunks;
+            try {
+                chunks = IntStream.range(0, chunkCount).parallel()
+                        .mapToObj(i -> readChunk(channel, table, i))
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            List<Player> players = new ArrayList<>(recordCount);
+            chunks.forEach(players::addAll);
+            if (players.size() != recordCount) {
+                throw new IOException("Snapshot record count mismatch: " + players.size() + " != " + recordCount);
+            }
+            return new PlayerSnapshotFile(highWaterMark, players);
+        }
+    }
+
+    private static List<Player> readChunk(FileChannel channel, ByteBuffer table, int index) {
+        int entry = index * CHUNK_ENTRY_SIZE;
+        long offset = table.getLong(entry);
+        int length = table.getInt(entry + 8);
+        int records = table.getInt(entry + 12);
+        try {
+            ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            checkCrc(chunk, 0, length, table.getInt(entry + 16), "chunk " + index);
+            List<Player> players = new ArrayList<>(records);
+            for (int i = 0; i < records; i++) {
+                players.add(decode(chunk));
+            }
+            return players;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encodeChunk(List<Player> players) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(players.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Player player : players) {
+            out.writeLong(player.getId());
+            out.writeByte(player.getRace() == null ? -1 : player.getRace().ordinal());
+            out.writeByte(player.getProfession() == null ? -1 : player.getProfession().ordinal());
+            out.writeByte(player.getBanned() == null ? -1 : (player.getBanned() ? 1 : 0));
+            out.writeLong(player.getBirthday() == null ? Long.MIN_VALUE : player.getBirthday().getTime());
+            out.writeInt(player.getExperience() == null ? Integer.MIN_VALUE : player.getExperience());
+            out.writeInt(player.getLevel() == null ? Integer.MIN_VALUE : player.getLevel());
+            out.writeInt(player.getUntilNextLevel() == null ? Integer.MIN_VALUE : player.getUntilNextLevel());
+            writeString(out, player.getName());
+            writeString(out, player.getTitle());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Player decode(ByteBuffer in) {
+        Player player = new Player();
+        player.setId(in.getLong());
+        byte race = in.get();
+        player.setRace(race < 0 ? null : RACES[race]);
+        byte profession = in.get();
+        player.setProfession(profession < 0 ? null : PROFESSIONS[profession]);
+        byte banned = in.get();
+        player.setBanned(banned < 0 ? null : banned == 1);
+        long birthday = in.getLong();
+        player.setBirthday(birthday == Long.MIN_VALUE ? null : new Date(birthday));
+        player.setExperience(nullable(in.getInt()));
+        player.setLevel(nullable(in.getInt()));
+        player.setUntilNextLevel(nullable(in.getInt()));
+        player.setName(readString(in));
+        player.setTitle(readString(in));
+        return player;
+    }
+
+    private static Integer nullable(int value) {
+        return value == Integer.MIN_VALUE ? null : value;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void checkCrc(ByteBuffer buffer, int offset, int length, int expected, String what) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer slice = buffer.duplicate();
+        // приведение к Buffer - чтобы байткод оставался совместимым с Java 8
+        ((Buffer) slice).position(offset).limit(offset + length);
+        crc.update(slice);
+        if ((int) crc.getValue() != expected) {
+            throw new IOException("Snapshot checksum mismatch in " + what);
+        }
+    }
+}
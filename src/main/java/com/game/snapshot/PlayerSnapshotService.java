@@ -0,0 +1,184 @@
+package com.game.snapshot;
+
+import com.game.entity.Player;
+import com.game.index.PlayerOrderIndex;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Снапшоты состояния игроков для быстрого холодного старта.
+ *
+ * Через PlayerStateListener только отмечает, что были изменения, и периодически в этом случае
+ * записывает в файл снапшота игроков из PlayerOrderIndex - своей копии игроков в куче не держит
+ * и БД для снапшота не читает (только если индекс выключен - read-only проекцией). При старте узел читает снапшот и догружает из БД
+ * только строки, измененные после его high-water mark (с запасом на расхождение часов),
+ * а удаленные строки отсеивает по списку id - вместо полного findAll().
+ *
+ * Нечитаемый или поврежденный снапшот пропускается - тогда читается вся таблица.
+ * Для хранилища в памяти процесса (профиль memory) снапшот - единственная сохраненная копия игроков,
+ * поэтому он берется как есть, без догрузки из таблицы.
+ *
+ * Выключено, если не задан player.snapshot.file.
+ */
+@Component
+public class PlayerSnapshotService implements PlayerStateListener, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerSnapshotService.class);
+
+    private final PlayerRepository playerRepository;
+    private final PlayerOrderIndex orderIndex;
+    private final Path file;
+    private final long catchUpMarginMillis;
+    private final int chunkSize;
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile boolean loaded;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PlayerSnapshotService(PlayerRepository playerRepository, PlayerOrderIndex orderIndex,
+                                 @Value("${player.snapshot.file:}") String file,
+                                 @Value("${player.snapshot.interval-seconds:300}") long intervalSeconds,
+                                 @Value("${player.snapshot.catch-up-margin-seconds:60}") long catchUpMarginSeconds,
+                                 @Value("${player.snapshot.chunk-size:65536}") int chunkSize) {
+        this.playerRepository = playerRepository;
+        this.orderIndex = orderIndex;
+        this.file = file.isEmpty() ? null : Paths.get(file);
+        this.catchUpMarginMillis = TimeUnit.SECONDS.toMillis(catchUpMarginSeconds);
+        this.chunkSize = chunkSize;
+
+        if (this.file == null) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "player-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeSafely, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Состояние игроков для старта: снапшот плюс изменения после него.
+     * Пусто, если снапшоты выключены, файла нет или он поврежден - тогда нужно читать всю таблицу.
+     */
+    public Optional<List<Player>> loadWithCatchUp() {
+        if (file == null || !Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        PlayerSnapshotFile snapshot;
+        try {
+            snapshot = PlayerSnapshotFile.read(file);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable player snapshot {}: {}", file, e.getMessage());
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            // поврежденная таблица блоков или запись, не пойманная контрольной суммой
+            log.warn("Ignoring corrupt player snapshot {}", file, e);
+            return Optional.empty();
+        }
+
+        if (playerRepository.isInMemory()) {
+            log.info("Loaded {} players from snapshot {}", snapshot.getPlayers().size(), file);
+            return Optional.of(snapshot.getPlayers());
+        }
+
+        Map<Long, Player> state = new HashMap<>(snapshot.getPlayers().size() * 2);
+        snapshot.getPlayers().forEach(player -> state.put(player.getId(), player));
+
+        // удаленные после снапшота строки
+        Set<Long> ids = new HashSet<>(playerRepository.findAllIds());
+        state.keySet().retainAll(ids);
+
+        // созданные и измененные после снапшота строки
+        Date since = new Date(snapshot.getHighWaterMark() - catchUpMarginMillis);
+        List<Player> changed = playerRepository.findByUpdatedAtGreaterThanEqual(since);
+        changed.forEach(player -> state.put(player.getId(), player));
+
+        log.info("Loaded {} players from snapshot {}, {} changed since", snapshot.getPlayers().size(), file, changed.size());
+        return Optional.of(new ArrayList<>(state.values()));
+    }
+
+    // записывает снапшот, если с прошлого раза были изменения
+    public void writeSnapshot() throws IOException {
+        if (file == null || !loaded || !dirty.getAndSet(false)) {
+            return;
+        }
+        // high-water mark берется до чтения: все, что изменится позже, догрузится при старте.
+        // Индекс узнает о записи после коммита, и записи, закоммиченные до high-water mark, но еще не
+        // дошедшие до индекса, тоже догрузятся - их updated_at попадает в запас catch-up-margin
+        long highWaterMark = System.currentTimeMillis();
+        try {
+            List<Player> players = orderIndex.players();
+            PlayerSnapshotFile.write(file, highWaterMark,
+                    players != null ? players : playerRepository.findAllForRead(), chunkSize);
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    private void writeSafely() {
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write player snapshot {}", file, e);
+        }
+    }
+
+    @Override
+    public void reload(Collection<Player> players) {
+        if (file == null) {
+            return;
+        }
+        loaded = true;
+        dirty.set(true);
+    }
+
+    @Override
+    public void playerSaved(Player player) {
+        if (file == null) {
+            return;
+        }
+        dirty.set(true);
+    }
+
+    @Override
+    public void playerDeleted(Long id) {
+        if (file == null) {
+            return;
+        }
+        dirty.set(true);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        writeSafely();
+    }
+}
@@ -0,0 +1,273 @@
+package com.game.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.changelog.PlayerChangelog;
+import com.game.entity.Player;
+import com.game.entity.PlayerLevels;
+import com.game.repository.PlayerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Режим write-behind для изменения игроков.
+ *
+ * Изменение подтверждается клиенту, как только оно дописано в локальный журнал и журнал сброшен на диск (fsync).
+ * Пока изменение не записано в БД, оно хранится в overlay (id -> объединенные измененные поля),
+ * и все чтения PlayerService накладывают overlay на строки из БД - для клиента API ведет себя как раньше.
+ * Фоновый поток раз в player.write-behind.flush-interval-ms записывает накопленное пакетами,
+ * несколько изменений одного игрока при этом сливаются в одно. Записи журнала изменений (PlayerChangelog)
+ * появляются в момент записи в БД. После падения незаписанные сегменты журнала читаются при старте обратно в overlay.
+ *
+ * В overlay хранятся только поля, заданные клиентом, поэтому начисления опыта (ExperienceFlusher)
+ * не затираются старым значением experience. ExperienceFlusher записывает overlay перед каждым пакетом начислений,
+ * так что начисление, принятое после нового значения experience, ложится поверх него.
+ * Выключено, если не задан player.write-behind.dir.
+ */
+@Component
+public class PlayerWriteBehind implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerWriteBehind.class);
+
+    private final PlayerRepository playerRepository;
+    private final PlayerChangelog changelog;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatch;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<Long, Player> pending = new ConcurrentHashMap<>();
+    private final Object appendLock = new Object();
+    private final PlayerWriteLog writeLog;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PlayerWriteBehind(PlayerRepository playerRepository, PlayerChangelog changelog,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${player.write-behind.dir:}") String dir,
+                             @Value("${player.write-behind.flush-interval-ms:100}") long flushIntervalMillis,
+                             @Value("${player.write-behind.max-batch:1000}") int maxBatch) {
+        this.playerRepository = playerRepository;
+        this.changelog = changelog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatch = maxBatch;
+
+        if (dir.isEmpty()) {
+            this.writeLog = null;
+            this.scheduler = null;
+            return;
+        }
+        try {
+            this.writeLog = new PlayerWriteLog(Paths.get(dir));
+            List<byte[]> records = writeLog.readClosed();
+            for (byte[] record : records) {
+                Player patch = mapper.readValue(record, Player.class);
+                pending.merge(patch.getId(), patch, PlayerWriteBehind::combine);
+            }
+            if (!records.isEmpty()) {
+                log.info("Recovered {} unflushed player writes for {} players from {}", records.size(), pending.size(), dir);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "player-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return writeLog != null;
+    }
+
+    /**
+     * Дописывает изменение игрока id в журнал и overlay и ждет fsync.
+     * Берутся только поля, которые клиент может менять; поля должны быть уже проверены.
+     */
+    public void write(Long id, Player changes) {
+        Player patch = new Player();
+        patch.setId(id);
+        patch.setName(changes.getName());
+        patch.setTitle(changes.getTitle());
+        patch.setRace(changes.getRace());
+        patch.setProfession(changes.getProfession());
+        patch.setBirthday(changes.getBirthday());
+        patch.setBanned(changes.getBanned());
+        patch.setExperience(changes.getExperience());
+
+        try {
+            byte[] record = mapper.writeValueAsBytes(patch);
+            PlayerWriteLog.Segment segment;
+            long end;
+            synchronized (appendLock) {
+                segment = writeLog.current();
+                end = segment.append(record);
+                pending.merge(id, patch, PlayerWriteBehind::combine);
+            }
+            segment.sync(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // игрок удален - его незаписанные изменения больше не нужны
+    public void discard(Long id) {
+        pending.remove(id);
+    }
+
+    // строка из БД с наложенными незаписанными изменениями (та же строка, если изменений нет)
+    public Player apply(Player player) {
+        Player patch = pending.get(player.getId());
+        if (patch == null) {
+            return player;
+        }
+        Player view = copyOf(player);
+        merge(view, patch);
+        return view;
+    }
+
+    public List<Player> apply(List<Player> players) {
+        if (pending.isEmpty()) {
+            return players;
+        }
+        return players.stream().map(this::apply).collect(Collectors.toList());
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    // id игроков с незаписанными изменениями на момент вызова
+    public Set<Long> pendingIds() {
+        return new HashSet<>(pending.keySet());
+    }
+
+    /**
+     * Записывает в БД все накопленные изменения. Сегменты журнала удаляются только после успешной записи,
+     * при ошибке изменения остаются в overlay и уйдут со следующим сбросом.
+     * Возвращает false, если записать не удалось.
+     */
+    public synchronized boolean flush() {
+        if (writeLog == null) {
+            return true;
+        }
+        try {
+            List<PlayerWriteLog.Segment> segments;
+            Map<Long, Player> batch;
+            synchronized (appendLock) {
+                segments = writeLog.rotate();
+                batch = new HashMap<>(pending);
+            }
+            for (PlayerWriteLog.Segment segment : segments) {
+                segment.syncAll();
+            }
+
+            List<Long> ids = new ArrayList<>(batch.keySet());
+            for (int from = 0; from < ids.size(); from += maxBatch) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + maxBatch));
+                transactionTemplate.execute(status -> {
+                    store(chunk, batch);
+                    return null;
+                });
+            }
+
+            // более поздние изменения того же игрока остаются: remove только для того же объекта
+            batch.forEach(pending::remove);
+            writeLog.delete(segments);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to flush write-behind player updates, will retry", e);
+            return false;
+        }
+    }
+
+    private void store(List<Long> ids, Map<Long, Player> batch) {
+        for (Player player : playerRepository.findAllById(ids)) {
+            Map<String, Object> before = PlayerChangelog.fieldsOf(player);
+            merge(player, batch.get(player.getId()));
+            Map<String, Object> changes = PlayerChangelog.diff(before, PlayerChangelog.fieldsOf(player));
+            if (!changes.isEmpty()) {
+                playerRepository.save(player);
+                changelog.append(PlayerChangelog.UPDATE, player.getId(), changes);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (writeLog == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        flush();
+        writeLog.close();
+    }
+
+    public static Player copyOf(Player player) {
+        Player copy = new Player();
+        copy.setId(player.getId());
+        copy.setName(player.getName());
+        copy.setTitle(player.getTitle());
+        copy.setRace(player.getRace());
+        copy.setProfession(player.getProfession());
+        copy.setBirthday(player.getBirthday());
+        copy.setBanned(player.getBanned());
+        copy.setExperience(player.getExperience());
+        copy.setLevel(player.getLevel());
+        copy.setUntilNextLevel(player.getUntilNextLevel());
+        copy.setUpdatedAt(player.getUpdatedAt());
+        return copy;
+    }
+
+    // накладывает заданные поля patch на player и пересчитывает уровень
+    private static void merge(Player player, Player patch) {
+        if (patch.getName() != null) {
+            player.setName(patch.getName());
+        }
+        if (patch.getTitle() != null) {
+            player.setTitle(patch.getTitle());
+        }
+        if (patch.getRace() != null) {
+            player.setRace(patch.getRace());
+        }
+        if (patch.getProfession() != null) {
+            player.setProfession(patch.getProfession());
+        }
+        if (patch.getBirthday() != null) {
+            player.setBirthday(patch.getBirthday());
+        }
+        if (patch.getBanned() != null) {
+            player.setBanned(patch.getBanned());
+        }
+        if (patch.getExperience() != null) {
+            player.setExperience(patch.getExperience());
+            player.setLevel(PlayerLevels.level(player.getExperience()));
+            player.setUntilNextLevel(PlayerLevels.untilNextLevel(player.getLevel(), player.getExperience()));
+        }
+    }
+
+    // объединение двух последовательных изменений одного игрока - новый объект, старые не меняются
+    private static Player combine(Player earlier, Player later) {
+        Player combined = copyOf(earlier);
+        merge(combined, later);
+        combined.setLevel(null);
+        combined.setUntilNextLevel(null);
+        return combined;
+    }
+}
@@ -0,0 +1,181 @@
+package com.game.writebehind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Локальный журнал записей write-behind: каталог с сегментами player-writes-NNN.log.
+ *
+ * Запись сегмента: [длина int][CRC32 int][данные]. Пишется всегда в текущий сегмент,
+ * перед сбросом в БД текущий сегмент закрывается (rotate) и новые записи идут в следующий.
+ * Закрытые сегменты удаляются, когда их содержимое записано в БД. После падения все оставшиеся
+ * сегменты считаются закрытыми и читаются заново; оборванная запись в конце сегмента отбрасывается.
+ */
+class PlayerWriteLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerWriteLog.class);
+
+    private static final String PREFIX = "player-writes-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final List<Segment> closed = new ArrayList<>();
+    private long nextNumber;
+    private Segment current;
+
+    PlayerWriteLog(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            files.forEach(existing::add);
+        }
+        existing.sort(null);
+        for (Path path : existing) {
+            closed.add(new Segment(path, null, Files.size(path)));
+            nextNumber = Math.max(nextNumber, numberOf(path) + 1);
+        }
+        current = open();
+    }
+
+    // записи закрытых сегментов по порядку - для восстановления после перезапуска
+    synchronized List<byte[]> readClosed() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (Segment segment : closed) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(segment.path));
+            while (in.remaining() >= HEADER) {
+                int length = in.getInt();
+                int checksum = in.getInt();
+                if (length < 0 || length > in.remaining()) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                in.get(record);
+                if (crc(record) != checksum) {
+                    break;
+                }
+                records.add(record);
+            }
+            if (in.hasRemaining()) {
+                log.warn("Ignoring torn tail of {} ({} bytes)", segment.path, in.remaining());
+            }
+        }
+        return records;
+    }
+
+    synchronized Segment current() {
+        return current;
+    }
+
+    /**
+     * Закрывает текущий сегмент, если в нем есть записи, и возвращает все закрытые сегменты.
+     * Вызывающий должен исключить одновременную запись в журнал.
+     */
+    synchronized List<Segment> rotate() throws IOException {
+        if (current.written > 0) {
+            closed.add(current);
+            current = open();
+        }
+        return new ArrayList<>(closed);
+    }
+
+    // удаляет сегменты, содержимое которых уже записано в БД
+    synchronized void delete(List<Segment> segments) throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+            Files.deleteIfExists(segment.path);
+            closed.remove(segment);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : closed) {
+            segment.close();
+        }
+        current.close();
+    }
+
+    private Segment open() throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", PREFIX, nextNumber++, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return new Segment(path, channel, 0);
+    }
+
+    private static long numberOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Сегмент журнала. Запись (append) идет под внешней блокировкой, а fsync (sync) - отдельно:
+     * несколько писателей, ждущих sync одновременно, обслуживаются одним force (групповой коммит).
+     */
+    static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private volatile long written;
+        private long forced;
+
+        private Segment(Path path, FileChannel channel, long written) {
+            this.path = path;
+            this.channel = channel;
+            this.written = written;
+            this.forced = written;
+        }
+
+        // дописывает запись и возвращает позицию ее конца
+        long append(byte[] record) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER + record.length);
+            buffer.putInt(record.length).putInt(crc(record)).put(record);
+            ByteBuffer out = ByteBuffer.wrap(buffer.array());
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            written += out.capacity();
+            return written;
+        }
+
+        // гарантирует, что все записанное до позиции position лежит на диске
+        synchronized void sync(long position) throws IOException {
+            if (forced >= position) {
+                return;
+            }
+            long target = written;
+            channel.force(false);
+            forced = target;
+        }
+
+        synchronized void syncAll() throws IOException {
+            sync(written);
+        }
+
+        private synchronized void close() throws IOException {
+            if (channel != null && channel.isOpen()) {
+                syncAll();
+                channel.close();
+            }
+        }
+    }
+}
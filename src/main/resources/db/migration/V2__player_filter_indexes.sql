@@ -0,0 +1,10 @@
+-- индексы под фильтры GET /rest/players и /rest/players/count: условия фильтра, кроме подстрок name и title,
+-- отбираются в БД (PlayerRepositoryCustom.findAllForRead(filter) и countForRead)
+
+-- фильтр по race/profession/banned с диапазоном level; покрывает подсчет с диапазоном experience
+CREATE INDEX idx_player_filter ON player (race, profession, banned, level, experience, birthday);
+
+-- диапазоны по одному полю, когда раса не задана
+CREATE INDEX idx_player_experience ON player (experience);
+CREATE INDEX idx_player_level ON player (level);
+CREATE INDEX idx_player_birthday ON player (birthday);
@@ -0,0 +1,5 @@
+-- время последнего изменения строки, поддерживается самой БД (в том числе при изменениях в обход приложения);
+-- по нему узел, поднявшийся из снапшота, дочитывает только изменившиеся строки
+ALTER TABLE player ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+
+CREATE INDEX idx_player_updated_at ON player (updated_at);
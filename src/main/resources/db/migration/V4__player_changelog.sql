@@ -0,0 +1,27 @@
+-- журнал изменений игроков для инкрементальной синхронизации (GET /rest/players/changes)
+-- id - порядок вставки; seq - номер, который видят клиенты. Пишущие транзакции seq не заполняют:
+-- его присваивает PlayerChangelog уже закоммиченным записям, поэтому порядок seq совпадает с порядком коммитов.
+CREATE TABLE player_changelog
+(
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    seq        BIGINT       NULL,
+    op         VARCHAR(6)   NOT NULL,
+    player_id  BIGINT       NOT NULL,
+    changes    VARCHAR(1024) NULL,
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX idx_player_changelog_seq ON player_changelog (seq);
+
+-- horizon: записи с seq <= horizon удалены компактизацией.
+-- last_seq: последний присвоенный seq. Строку блокирует только присвоение номеров, пишущие транзакции ее не трогают.
+CREATE TABLE player_changelog_state
+(
+    id       INT    NOT NULL,
+    horizon  BIGINT NOT NULL,
+    last_seq BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO player_changelog_state (id, horizon, last_seq) VALUES (1, 0, 0);
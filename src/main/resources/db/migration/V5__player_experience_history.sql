@@ -0,0 +1,13 @@
+-- история опыта игроков: сжатые блоки точек (время, опыт), см. com.game.history.ExperienceBlock
+CREATE TABLE player_experience_history
+(
+    player_id   BIGINT          NOT NULL,
+    block_start BIGINT          NOT NULL,
+    block_end   BIGINT          NOT NULL,
+    points      INT             NOT NULL,
+    data        VARBINARY(4096) NOT NULL,
+    PRIMARY KEY (player_id, block_start)
+);
+
+-- удаление блоков старше срока хранения
+CREATE INDEX idx_player_experience_history_end ON player_experience_history (block_end);
@@ -0,0 +1,45 @@
+package com.game.admission;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class ClientRateLimiterTest {
+
+    private ClientRateLimiter limiter;
+
+    @After
+    public void shutdown() {
+        limiter.shutdown();
+    }
+
+    //test1
+    @Test
+    public void newClientsShareBucketWhenFullTest() {
+        // 2 запроса в секунду без всплеска: второй запрос в ту же корзину отклоняется
+        limiter = new ClientRateLimiter(2, 1, 2, 3600000);
+        assertEquals("Первый клиент должен быть принят.", 0L, limiter.tryAcquire("a", 1));
+        assertEquals("Второй клиент должен быть принят.", 0L, limiter.tryAcquire("b", 1));
+
+        assertEquals("Клиент сверх лимита должен быть принят по общей корзине.", 0L, limiter.tryAcquire("c", 1));
+        assertTrue("Клиенты сверх лимита должны делить одну корзину.", limiter.tryAcquire("d", 1) > 0);
+        assertEquals("Количество отслеживаемых клиентов не должно превышать лимит.", 2, limiter.clients());
+    }
+
+    //test2
+    @Test
+    public void idleClientsSweptTest() throws Exception {
+        // 20 запросов в секунду без всплеска: корзина простаивает через 50 мс после запроса
+        limiter = new ClientRateLimiter(20, 1, 2, 3600000);
+        limiter.tryAcquire("a", 1);
+        limiter.tryAcquire("b", 1);
+        Thread.sleep(100);
+
+        limiter.sweep();
+        assertEquals("Простаивающие клиенты должны забываться.", 0, limiter.clients());
+        assertEquals("После очистки новый клиент получает свою корзину.", 0L, limiter.tryAcquire("c", 1));
+        assertEquals("Новый клиент должен отслеживаться.", 1, limiter.clients());
+    }
+}
@@ -0,0 +1,43 @@
+package com.game.cache;
+
+import org.junit.Test;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class ApproximateLruCacheTest {
+
+    //test1
+    @Test
+    public void sizeBoundedTest() {
+        ApproximateLruCache<Integer, String> cache = new ApproximateLruCache<>(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i);
+        }
+
+        assertTrue("Размер кэша не должен превышать maxEntries.", cache.size() <= 100);
+        assertEquals("Последняя вставленная запись должна остаться.", "v999", cache.get(999));
+    }
+
+    //test2
+    @Test
+    public void recentlyReadEntriesKeptTest() throws Exception {
+        ApproximateLruCache<Integer, String> cache = new ApproximateLruCache<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "v" + i);
+        }
+        // обращение к первым записям делает их самыми свежими
+        Thread.sleep(1);
+        for (int i = 0; i < 10; i++) {
+            cache.get(i);
+        }
+        for (int i = 100; i < 150; i++) {
+            cache.put(i, "v" + i);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Недавно прочитанная запись не должна вытесняться.", "v" + i, cache.get(i));
+        }
+        assertEquals("Самая старая непрочитанная запись должна быть вытеснена.", null, cache.get(10));
+    }
+}
@@ -0,0 +1,58 @@
+package com.game.cache;
+
+import com.game.deadline.RequestDeadline;
+import com.game.exceptions.DeadlineExceededException;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class SingleFlightTest {
+
+    //test1
+    @Test
+    public void waiterStopsAtOwnDeadlineTest() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // первый вызов выполняет loader, который не завершится до конца теста
+            Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "value";
+            }));
+            started.await(10, TimeUnit.SECONDS);
+
+            RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+            long start = System.nanoTime();
+            try {
+                flight.execute("key", () -> "other");
+                throw new AssertionError("Ожидание чужого loader должно прерываться по сроку запроса.");
+            } catch (DeadlineExceededException e) {
+                assertTrue("Ожидание должно закончиться по сроку запроса.",
+                        System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            } finally {
+                RequestDeadline.clear();
+            }
+
+            release.countDown();
+            assertEquals("Первый вызов должен получить свой результат.", "value", leader.get(10, TimeUnit.SECONDS));
+            assertEquals("Вызов должен быть объединен с выполняющимся.", 1L, flight.getCoalesced());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
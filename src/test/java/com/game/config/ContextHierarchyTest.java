@@ -0,0 +1,61 @@
+package com.game.config;
+
+import com.game.controller.PlayerController;
+import com.game.experience.ExperienceFlusher;
+import com.game.history.ExperienceHistory;
+import com.game.service.PlayerService;
+import com.game.snapshot.PlayerSnapshotService;
+import com.game.writebehind.PlayerWriteBehind;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.ContextHierarchy;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+// контексты как в MyWebAppInit: корневой из AppConfig и дочерний контекст DispatcherServlet из WebConfig
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles("dev")
+@WebAppConfiguration
+@ContextHierarchy({
+        @ContextConfiguration(name = "root", classes = AppConfig.class),
+        @ContextConfiguration(name = "web", classes = WebConfig.class)})
+public class ContextHierarchyTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    //test1
+    @Test
+    public void statefulBeansOnlyInRootContextTest() {
+        ApplicationContext root = context.getParent();
+        for (Class<?> type : Arrays.asList(PlayerService.class, PlayerWriteBehind.class, ExperienceFlusher.class,
+                PlayerSnapshotService.class, ExperienceHistory.class, EntityManagerFactory.class)) {
+            assertEquals(type.getSimpleName() + " должен быть только в корневом контексте.",
+                    1, root.getBeanNamesForType(type).length);
+            assertEquals(type.getSimpleName() + " не должен создаваться второй раз в контексте DispatcherServlet.",
+                    0, context.getBeanNamesForType(type).length);
+        }
+    }
+
+    //test2
+    @Test
+    public void controllerOnlyInWebContextTest() {
+        assertEquals("Контроллер не должен создаваться в корневом контексте.",
+                0, context.getParent().getBeanNamesForType(PlayerController.class).length);
+        assertEquals("Контроллер должен быть в контексте DispatcherServlet.",
+                1, context.getBeanNamesForType(PlayerController.class).length);
+        assertEquals("К контроллеру должен подключаться advisor @Workload.",
+                true, AopUtils.isAopProxy(context.getBean(PlayerController.class)));
+    }
+}
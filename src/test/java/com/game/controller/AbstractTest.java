@@ -3,15 +3,20 @@ package com.game.controller;
 import com.game.config.AppConfig;
 import com.game.config.MyWebAppInit;
 import com.game.config.WebConfig;
+import com.game.repository.OffHeapPlayerRepository;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerService;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Profiles;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.AopTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
@@ -33,6 +38,14 @@ public abstract class AbstractTest {
 
     @Before
     public void setup() {
+        // в профиле memory игроки хранятся вне БД - заполняем хранилище из пересозданной таблицы
+        if (context.getEnvironment().acceptsProfiles(Profiles.of("memory"))) {
+            OffHeapPlayerRepository memory = AopTestUtils.getUltimateTargetObject(context.getBean("memoryPlayerRepository"));
+            memory.replaceAll(context.getBean("playerRepository", PlayerRepository.class).findAll());
+        }
+        // test.sql пересоздает таблицу в обход сервиса, поэтому in-memory состояние строим заново
+        context.getBean(PlayerService.class).reloadState();
+
         mockMvc = MockMvcBuilders
                 .webAppContextSetup(context)
                 .addFilter(((request, response, chain) -> {
@@ -0,0 +1,86 @@
+package com.game.controller;
+
+import com.game.circuit.DatabaseCircuitBreaker;
+import com.game.deadline.DeadlineInterceptor;
+import com.game.exceptions.DatabaseUnavailableException;
+import com.game.exceptions.DeadlineExceededException;
+import com.game.exceptions.ServiceOverloadedException;
+import com.game.experience.ExperienceFlusher;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// начисления сбрасываются только вызовом flush() из теста
+@TestPropertySource(properties = {
+        "player.experience.ack=flushed",
+        "player.experience.ack-timeout-ms=300",
+        "player.experience.flush-interval-ms=3600000"})
+public class AddExperienceFlushedTest extends AbstractTest {
+
+    @After
+    public void flushPending() {
+        context.getBean(DatabaseCircuitBreaker.class).reset();
+        context.getBean(ExperienceFlusher.class).flush();
+    }
+
+    //test1
+    @Test
+    public void addExperienceAcknowledgedAfterFlushTest() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ExperienceFlusher flusher = context.getBean(ExperienceFlusher.class);
+            executor.scheduleWithFixedDelay(flusher::flush, 50, 50, TimeUnit.MILLISECONDS);
+            mockMvc.perform(post("/rest/players/14/experience").param("delta", "10"))
+                    .andExpect(status().isAccepted());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //test2
+    @Test
+    public void addExperienceNotFlushedInTimeTest() throws Exception {
+        MvcResult result = mockMvc.perform(post("/rest/players/14/experience").param("delta", "10"))
+                .andExpect(status().isServiceUnavailable())
+                .andReturn();
+        assertEquals("Несброшенное вовремя начисление должно давать ServiceOverloadedException.",
+                ServiceOverloadedException.class, result.getResolvedException().getClass());
+    }
+
+    //test3
+    @Test
+    public void addExperienceRequestDeadlineTest() throws Exception {
+        MvcResult result = mockMvc.perform(post("/rest/players/14/experience").param("delta", "10")
+                .header(DeadlineInterceptor.TIMEOUT_HEADER, "100"))
+                .andExpect(status().isGatewayTimeout())
+                .andReturn();
+        assertEquals("Истекший срок запроса должен давать DeadlineExceededException.",
+                DeadlineExceededException.class, result.getResolvedException().getClass());
+    }
+
+    //test4
+    @Test
+    public void addExperienceDatabaseUnavailableTest() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            // автомат размыкается, пока запрос ждет сброса
+            executor.schedule(() -> context.getBean(DatabaseCircuitBreaker.class).forceOpen(), 50, TimeUnit.MILLISECONDS);
+            MvcResult result = mockMvc.perform(post("/rest/players/14/experience").param("delta", "10"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andReturn();
+            assertEquals("Недоступная БД при ожидании сброса должна давать DatabaseUnavailableException.",
+                    DatabaseUnavailableException.class, result.getResolvedException().getClass());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
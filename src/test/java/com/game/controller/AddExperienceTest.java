@@ -0,0 +1,122 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.experience.ExperienceAccumulator;
+import com.game.experience.ExperienceFlusher;
+import org.junit.Test;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.Assume.assumeFalse;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AddExperienceTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void addExperienceWithZeroDeltaTest() throws Exception {
+        mockMvc.perform(post("/rest/players/14/experience").param("delta", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test2
+    @Test
+    public void addExperienceWithIdZeroTest() throws Exception {
+        mockMvc.perform(post("/rest/players/0/experience").param("delta", "10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test3
+    @Test
+    public void addExperienceTest() throws Exception {
+        PlayerInfoTest before = testsHelper.getPlayerInfosById(14);
+
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(post("/rest/players/14/experience").param("delta", "1000"))
+                    .andExpect(status().isAccepted());
+        }
+        context.getBean(ExperienceFlusher.class).flush();
+
+        PlayerInfoTest actual = getPlayer(14);
+        int experience = before.experience + 10000;
+        int level = (int) ((Math.sqrt(2500 + 200 * experience) - 50) / 100);
+        assertEquals("Начисления опыта потерялись.", experience, actual.experience);
+        assertEquals("Уровень не пересчитан.", level, actual.level);
+        assertEquals("Опыт до следующего уровня не пересчитан.", 50 * (level + 1) * (level + 2) - experience, actual.untilNextLevel);
+    }
+
+    //test4
+    @Test
+    public void addExperienceBatchClampedTest() throws Exception {
+        PlayerInfoTest before = testsHelper.getPlayerInfosById(15);
+
+        mockMvc.perform(post("/rest/players/experience")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"14\": -10000000, \"15\": 5}"))
+                .andExpect(status().isAccepted());
+        context.getBean(ExperienceFlusher.class).flush();
+
+        PlayerInfoTest cleared = getPlayer(14);
+        assertEquals("Опыт должен ограничиваться нулем.", 0, cleared.experience);
+        assertEquals("Неправильный уровень при нулевом опыте.", 0, cleared.level);
+        assertEquals("Неправильный опыт до следующего уровня.", 100, cleared.untilNextLevel);
+        assertEquals("Начисление второму игроку потерялось.", before.experience + 5, getPlayer(15).experience);
+    }
+
+    //test5
+    @Test
+    public void addExperienceToMissingPlayerTest() throws Exception {
+        PlayerInfoTest before = testsHelper.getPlayerInfosById(15);
+
+        mockMvc.perform(post("/rest/players/410/experience").param("delta", "5"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/rest/players/experience")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"15\": 5, \"410\": 5}"))
+                .andExpect(status().isNotFound());
+        context.getBean(ExperienceFlusher.class).flush();
+
+        assertEquals("Начисление принято, хотя одного из игроков нет.", before.experience, getPlayer(15).experience);
+    }
+
+    //test6
+    @Test
+    public void failedExperienceIsolatedAndDeadLetteredTest() throws Exception {
+        // отказ записи имитируется ограничением таблицы в БД
+        assumeFalse(context.getEnvironment().acceptsProfiles(Profiles.of("memory")));
+        context.getBean(JdbcTemplate.class).execute(
+                "ALTER TABLE player ADD CONSTRAINT experience_15 CHECK (id <> 15 OR experience < 1000000)");
+        PlayerInfoTest before = testsHelper.getPlayerInfosById(14);
+        ExperienceFlusher flusher = context.getBean(ExperienceFlusher.class);
+
+        mockMvc.perform(post("/rest/players/experience")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"14\": 5, \"15\": 2000000}"))
+                .andExpect(status().isAccepted());
+        for (int i = 0; i < 5; i++) {
+            flusher.flush();
+        }
+
+        assertEquals("Начисление другому игроку из того же пакета не записано.", before.experience + 5, getPlayer(14).experience);
+        assertEquals("Начисление, которое не удается записать, должно быть отложено.",
+                2000000L, flusher.getDeadLetters().get(15L));
+        assertEquals("Отложенное начисление повторяется.", null,
+                context.getBean(ExperienceAccumulator.class).pendingSnapshot().get(15L));
+    }
+
+    private PlayerInfoTest getPlayer(int id) throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk());
+        return mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(), PlayerInfoTest.class);
+    }
+}
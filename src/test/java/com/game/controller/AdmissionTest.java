@@ -0,0 +1,56 @@
+package com.game.controller;
+
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "player.admission.scan.client-rate=0.1",
+        "player.admission.scan.client-burst=2"})
+public class AdmissionTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void scansOverClientRateTest() throws Exception {
+        mockMvc.perform(get("/rest/players").with(request -> {
+            request.setRemoteAddr("10.0.0.1");
+            return request;
+        })).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/count").with(request -> {
+            request.setRemoteAddr("10.0.0.1");
+            return request;
+        })).andExpect(status().isOk());
+
+        MvcResult rejected = mockMvc.perform(get("/rest/players").with(request -> {
+            request.setRemoteAddr("10.0.0.1");
+            return request;
+        })).andExpect(status().isTooManyRequests()).andReturn();
+        String retryAfter = rejected.getResponse().getHeader("Retry-After");
+        assertTrue("Нет заголовка Retry-After.", retryAfter != null && Long.parseLong(retryAfter) > 0);
+
+        mockMvc.perform(get("/rest/players").with(request -> {
+            request.setRemoteAddr("10.0.0.2");
+            return request;
+        })).andExpect(status().isOk());
+    }
+
+    //test2
+    @Test
+    public void pointReadsNotShedTest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/rest/players").with(request -> {
+                request.setRemoteAddr("10.0.0.3");
+                return request;
+            }));
+        }
+        // чтение по id не ограничивается частотой списков
+        mockMvc.perform(get("/rest/players/1").with(request -> {
+            request.setRemoteAddr("10.0.0.3");
+            return request;
+        })).andExpect(status().isOk());
+    }
+}
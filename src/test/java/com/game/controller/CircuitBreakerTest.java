@@ -0,0 +1,107 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.circuit.CircuitBreakerDataSource;
+import com.game.circuit.DatabaseCircuitBreaker;
+import com.game.controller.utils.TestsHelper;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class CircuitBreakerTest extends AbstractTest {
+
+    @After
+    public void closeBreaker() {
+        context.getBean(DatabaseCircuitBreaker.class).reset();
+    }
+
+    //test1
+    @Test
+    public void openBreakerServesStalePlayerTest() throws Exception {
+        String fresh = mockMvc.perform(get("/rest/players/14"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Warning"))
+                .andReturn().getResponse().getContentAsString();
+
+        context.getBean(DatabaseCircuitBreaker.class).forceOpen();
+
+        String stale = mockMvc.perform(get("/rest/players/14"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Warning", StaleResponseAdvice.STALE_WARNING))
+                .andExpect(header().exists("Age"))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("При недоступной БД GET /rest/players/{id} должен вернуть последнюю известную версию", fresh, stale);
+
+        mockMvc.perform(get("/rest/players/3"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    //test2
+    @Test
+    public void openBreakerFailsWritesFastTest() throws Exception {
+        context.getBean(DatabaseCircuitBreaker.class).forceOpen();
+
+        mockMvc.perform(post("/rest/players/14")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(post("/rest/players/experience")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"14\": 100}"))
+                .andExpect(status().isServiceUnavailable());
+        assertEquals("Автомат должен остаться разомкнутым", "OPEN", breakerState());
+    }
+
+    //test3
+    @Test
+    public void closedBreakerReadsDatabaseTest() throws Exception {
+        DatabaseCircuitBreaker breaker = context.getBean(DatabaseCircuitBreaker.class);
+        breaker.forceOpen();
+        breaker.reset();
+
+        mockMvc.perform(get("/rest/players/3"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Warning"));
+        assertEquals("После восстановления автомат должен быть замкнут", "CLOSED", breakerState());
+    }
+
+    //test4
+    @Test
+    public void probeCountedPerConnectionTest() throws Exception {
+        DatabaseCircuitBreaker breaker = new DatabaseCircuitBreaker(new MockEnvironment()
+                .withProperty("player.breaker.open-ms", "0")
+                .withProperty("player.breaker.half-open-calls", "2"));
+        DataSource dataSource = new CircuitBreakerDataSource(context.getBean(DataSource.class), breaker);
+        breaker.forceOpen();
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (int i = 0; i < 3; i++) {
+                statement.execute("SELECT 1");
+            }
+        }
+        assertEquals("Запросы одного пробного соединения - одна проба", "HALF_OPEN", breaker.stats(0).getState());
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SELECT 1");
+        }
+        assertEquals("После двух успешных проб автомат должен замкнуться", "CLOSED", breaker.stats(0).getState());
+    }
+
+    private String breakerState() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/stats/circuit-breaker"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return new ObjectMapper().readTree(content).get("state").asText();
+    }
+}
@@ -0,0 +1,35 @@
+package com.game.controller;
+
+import org.junit.Test;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class DeadlineTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void expiredDeadlineFailsFastTest() throws Exception {
+        mockMvc.perform(get("/rest/players").header("X-Request-Timeout", "0"))
+                .andExpect(status().isGatewayTimeout());
+    }
+
+    //test2
+    @Test
+    public void expiredDeadlineDoesNotWriteTest() throws Exception {
+        mockMvc.perform(delete("/rest/players/1").header("X-Request-Timeout", "0"))
+                .andExpect(status().isGatewayTimeout());
+        mockMvc.perform(get("/rest/players/1"))
+                .andExpect(status().isOk());
+    }
+
+    //test3
+    @Test
+    public void requestWithinDeadlineTest() throws Exception {
+        mockMvc.perform(get("/rest/players/count").header("X-Request-Timeout", "5000"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/1").header("X-Request-Timeout", "not a number"))
+                .andExpect(status().isOk());
+    }
+}
@@ -11,9 +11,14 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 
 import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -172,4 +177,56 @@ public class GetAllTest extends AbstractTest {
 
         assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами after, before, minExperience и maxExperience.", expected, actual);
     }
-}
\ No newline at end of file
+
+    //test9
+    @Test
+    public void getAllAfterDeleteReturnsFreshPage() throws Exception {
+        mockMvc.perform(get("/rest/players"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/rest/players/1"))
+                .andExpect(status().isOk());
+
+        ResultActions resultActions = mockMvc.perform(get("/rest/players"))
+                .andExpect(status().isOk());
+
+        String contentAsString = resultActions.andReturn().getResponse().getContentAsString();
+        List<PlayerInfoTest> actual = mapper.readValue(contentAsString, typeReference);
+        List<PlayerInfoTest> all = new ArrayList<>(testsHelper.getAllPlayers());
+        all.remove(testsHelper.getPlayerInfosById(1));
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(0, 3, all);
+
+        assertEquals("После удаления игрока GET /rest/players возвращает устаревшую страницу.", expected, actual);
+    }
+
+    //test10
+    @Test
+    public void getAllOrderByLevelPageNumber() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players?order=LEVEL&pageNumber=2&pageSize=4"))
+                .andExpect(status().isOk());
+
+        String contentAsString = resultActions.andReturn().getResponse().getContentAsString();
+        List<PlayerInfoTest> actual = mapper.readValue(contentAsString, typeReference);
+        List<PlayerInfoTest> all = new ArrayList<>(testsHelper.getAllPlayers());
+        all.sort(Comparator.comparing((PlayerInfoTest player) -> player.level).thenComparing(player -> player.id));
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(2, 4, all);
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметром order=LEVEL.", expected, actual);
+    }
+
+    //test11
+    @Test
+    public void getAllOrderByNameWithFilter() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players?order=NAME&race=HUMAN&pageNumber=1&pageSize=2"))
+                .andExpect(status().isOk());
+
+        String contentAsString = resultActions.andReturn().getResponse().getContentAsString();
+        List<PlayerInfoTest> actual = mapper.readValue(contentAsString, typeReference);
+        Collator collator = Collator.getInstance(new Locale("ru", "RU"));
+        List<PlayerInfoTest> humans = new ArrayList<>(testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers()));
+        humans.sort(Comparator.comparing((PlayerInfoTest player) -> player.name, collator::compare).thenComparing(player -> player.id));
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(1, 2, humans);
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами order=NAME и race.", expected, actual);
+    }
+}
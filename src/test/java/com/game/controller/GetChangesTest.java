@@ -0,0 +1,162 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.changelog.PlayerChangelog;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetChangesTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getChangesNegativeSinceTest() throws Exception {
+        mockMvc.perform(get("/rest/players/changes?since=-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test2
+    @Test
+    public void getChangesAfterWritesTest() throws Exception {
+        long since = lastSeq();
+
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/rest/players/2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\": 1000}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/rest/players/3"))
+                .andExpect(status().isOk());
+
+        JsonNode changes = readChanges(since);
+
+        assertEquals("Неправильное количество изменений.", 3, changes.size());
+        assertEquals("Неправильная операция.", "CREATE", changes.get(0).get("op").asText());
+        assertEquals("Неправильная операция.", "UPDATE", changes.get(1).get("op").asText());
+        assertEquals("Неправильный игрок.", 2L, changes.get(1).get("playerId").asLong());
+        assertEquals("Неправильный опыт в изменении.", 1000, changes.get(1).get("changes").get("experience").asInt());
+        assertEquals("В изменении есть неизменившиеся поля.", false, changes.get(1).get("changes").has("name"));
+        assertEquals("Неправильная операция.", "DELETE", changes.get(2).get("op").asText());
+        assertEquals("Неправильный игрок.", 3L, changes.get(2).get("playerId").asLong());
+    }
+
+    //test3
+    @Test
+    public void getChangesAfterFailedUpdateTest() throws Exception {
+        long since = lastSeq();
+
+        mockMvc.perform(post("/rest/players/2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\": -5}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals("Неудачное изменение попало в журнал.", 0, readChanges(since).size());
+    }
+
+    //test4
+    @Test
+    public void getChangesAfterCompactionTest() throws Exception {
+        long since = lastSeq();
+
+        mockMvc.perform(post("/rest/players/2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\": 1000}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/rest/players/2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\": 2000}"))
+                .andExpect(status().isOk());
+
+        context.getBean(PlayerChangelog.class).compact(1);
+
+        mockMvc.perform(get("/rest/players/changes?since=" + since))
+                .andExpect(status().isGone());
+        assertEquals("После компактизации должна остаться последняя запись.", 1, readChanges(lastSeq() - 1).size());
+    }
+
+    //test5
+    @Test
+    public void getChangesInCommitOrderTest() throws Exception {
+        long since = lastSeq();
+        PlayerChangelog changelog = context.getBean(PlayerChangelog.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // транзакция вставила запись раньше, но закоммитится позже
+            Future<?> slow = executor.submit(() -> transaction.execute(status -> {
+                changelog.append(PlayerChangelog.UPDATE, 5L, Collections.singletonMap("experience", 1));
+                appended.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            appended.await(10, TimeUnit.SECONDS);
+
+            // незакоммиченная запись журнала не должна задерживать другие пишущие транзакции
+            mockMvc.perform(post("/rest/players/2")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"experience\": 1000}"))
+                    .andExpect(status().isOk());
+
+            JsonNode first = readChanges(since);
+            assertEquals("Незакоммиченная запись не должна быть видна.", 1, first.size());
+            assertEquals("Неправильный игрок.", 2L, first.get(0).get("playerId").asLong());
+
+            release.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+
+            JsonNode second = readChanges(first.get(0).get("seq").asLong());
+            assertEquals("Запись, закоммиченная позже, должна получить больший seq.", 1, second.size());
+            assertEquals("Неправильный игрок.", 5L, second.get(0).get("playerId").asLong());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    // журнал общий для всех тестов контекста, и после компактизации читать его можно только с horizon
+    private long lastSeq() throws Exception {
+        long seq = context.getBean(PlayerChangelog.class).horizon();
+        JsonNode changes;
+        do {
+            changes = readChanges(seq);
+            if (changes.size() > 0) {
+                seq = changes.get(changes.size() - 1).get("seq").asLong();
+            }
+        } while (changes.size() > 0);
+        return seq;
+    }
+
+    private JsonNode readChanges(long since) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/changes?since=" + since))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+}
@@ -0,0 +1,122 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.entity.Player;
+import com.game.history.ExperienceHistory;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetHistoryTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getHistoryAfterUpdatesTest() throws Exception {
+        long from = System.currentTimeMillis();
+        setExperience(5, 1234);
+        setExperience(5, 5678);
+
+        JsonNode points = history("/rest/players/5/history?from=" + from);
+        assertEquals("В истории должны быть две точки", 2, points.size());
+        assertEquals("Первая точка истории неверна", 1234, points.get(0).get("experience").asInt());
+        assertEquals("Вторая точка истории неверна", 5678, points.get(1).get("experience").asInt());
+
+        // после записи в БД история читается из сохраненных блоков так же
+        context.getBean(ExperienceHistory.class).flush();
+        assertEquals("История после записи в БД изменилась", points, history("/rest/players/5/history?from=" + from));
+    }
+
+    //test2
+    @Test
+    public void getHistoryRollupTest() throws Exception {
+        long from = System.currentTimeMillis();
+        setExperience(6, 2000);
+        setExperience(6, 1500);
+        setExperience(6, 3000);
+
+        JsonNode rollups = history("/rest/players/6/history?from=" + from + "&step=3600000");
+        assertEquals("Все точки должны попасть в один интервал", 1, rollups.size());
+        JsonNode rollup = rollups.get(0);
+        assertEquals("Количество точек в интервале неверно", 3, rollup.get("points").asInt());
+        assertEquals("Первое значение интервала неверно", 2000, rollup.get("first").asInt());
+        assertEquals("Последнее значение интервала неверно", 3000, rollup.get("last").asInt());
+        assertEquals("Минимум интервала неверен", 1500, rollup.get("min").asInt());
+        assertEquals("Максимум интервала неверен", 3000, rollup.get("max").asInt());
+    }
+
+    //test3
+    @Test
+    public void getHistoryBadRequestTest() throws Exception {
+        mockMvc.perform(get("/rest/players/410/history"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/rest/players/5/history?step=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/5/history?from=20&to=10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test4
+    @Test
+    public void getHistoryAcrossBlocksTest() throws Exception {
+        long from = System.currentTimeMillis();
+        ExperienceHistory history = context.getBean(ExperienceHistory.class);
+        int points = 300;
+        for (int i = 1; i <= points; i++) {
+            history.playerSaved(player(8, i));
+        }
+        history.flush();
+
+        JsonNode stored = history("/rest/players/8/history?from=" + from);
+        assertEquals("После записи нескольких блоков должны читаться все точки", points, stored.size());
+        for (int i = 0; i < points; i++) {
+            assertEquals("Точки истории должны идти по порядку", i + 1, stored.get(i).get("experience").asInt());
+        }
+    }
+
+    //test5
+    @Test
+    public void getHistoryAfterDeleteTest() throws Exception {
+        setExperience(9, 4321);
+        context.getBean(ExperienceHistory.class).flush();
+
+        mockMvc.perform(delete("/rest/players/9"))
+                .andExpect(status().isOk());
+        context.getBean(ExperienceHistory.class).flush();
+
+        Integer rows = context.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT COUNT(*) FROM player_experience_history WHERE player_id = 9", Integer.class);
+        assertEquals("История удаленного игрока должна быть удалена", 0, rows);
+        mockMvc.perform(get("/rest/players/9/history"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static Player player(long id, int experience) {
+        Player player = new Player();
+        player.setId(id);
+        player.setExperience(experience);
+        return player;
+    }
+
+    private void setExperience(long id, int experience) throws Exception {
+        mockMvc.perform(post("/rest/players/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\":" + experience + "}"))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode history(String url) throws Exception {
+        String content = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+}
@@ -1,14 +1,28 @@
 package com.game.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.game.controller.utils.PlayerInfoTest;
+import com.game.cache.PlayerLookupBatcher;
 import com.game.controller.utils.TestsHelper;
+import com.game.deadline.RequestDeadline;
+import com.game.entity.Player;
 import org.junit.Test;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 import static org.springframework.test.util.AssertionErrors.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class GetPlayerTest extends AbstractTest {
@@ -47,4 +61,120 @@ public class GetPlayerTest extends AbstractTest {
         PlayerInfoTest actual = mapper.readValue(contentAsString, PlayerInfoTest.class);
         assertEquals("Вернулся неправильный объект при запросе GET /rest/players/{id}", expected, actual);
     }
-}
\ No newline at end of file
+
+    //test5
+    @Test
+    public void getPlayersByIdsTest() throws Exception {
+        TestsHelper testsHelper = new TestsHelper();
+        List<PlayerInfoTest> expected = Arrays.asList(testsHelper.getPlayerInfosById(14),
+                testsHelper.getPlayerInfosById(3), testsHelper.getPlayerInfosById(7));
+
+        ResultActions resultActions = mockMvc.perform(get("/rest/players?ids=14,3,410,7,3"))
+                .andExpect(status().isOk());
+
+        String contentAsString = resultActions.andReturn().getResponse().getContentAsString();
+        List<PlayerInfoTest> actual = new ObjectMapper().readValue(contentAsString, new TypeReference<List<PlayerInfoTest>>() {
+        });
+        assertEquals("GET /rest/players?ids=... должен вернуть существующих игроков в порядке запроса без повторов", expected, actual);
+    }
+
+    //test6
+    @Test
+    public void getPlayersByIdsNotPositiveTest() throws Exception {
+        mockMvc.perform(get("/rest/players?ids=1,0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test7
+    @Test
+    public void getPlayerAfterUpdateTest() throws Exception {
+        JsonNode statsBefore = jsonCacheStats();
+        String before = mockMvc.perform(get("/rest/players/14"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String cached = mockMvc.perform(get("/rest/players/14"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Повторный GET /rest/players/{id} должен вернуть тот же JSON", before, cached);
+
+        String list = mockMvc.perform(get("/rest/players?ids=14"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("JSON игрока в списке должен совпадать с JSON по id", "[" + before + "]", list);
+
+        mockMvc.perform(post("/rest/players/14")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Обновленный\"}"))
+                .andExpect(status().isOk());
+
+        String after = mockMvc.perform(get("/rest/players/14"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        PlayerInfoTest actual = new ObjectMapper().readValue(after, PlayerInfoTest.class);
+        assertEquals("После обновления GET /rest/players/{id} должен вернуть новое имя", "Обновленный", actual.name);
+
+        JsonNode statsAfter = jsonCacheStats();
+        assertEquals("Повторные ответы с тем же игроком должны браться из кэша JSON",
+                statsBefore.get("hits").asLong() + 3, statsAfter.get("hits").asLong());
+        assertEquals("Игрок должен сериализоваться при первом ответе и после обновления",
+                statsBefore.get("misses").asLong() + 2, statsAfter.get("misses").asLong());
+    }
+
+    private JsonNode jsonCacheStats() throws Exception {
+        return new ObjectMapper().readTree(mockMvc.perform(get("/rest/players/stats/json-cache"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+
+    //test8
+    @Test
+    public void batchedLookupUsesLongestDeadlineTest() throws Exception {
+        // окно побольше, чтобы оба вызова гарантированно попали в один пакет
+        PlayerLookupBatcher batcher = new PlayerLookupBatcher(200_000, 100);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        List<Long> batchDeadlines = Collections.synchronizedList(new ArrayList<>());
+        Function<Collection<Long>, Map<Long, Player>> loader = ids -> {
+            if (ids.contains(1L)) {
+                firstStarted.countDown();
+                awaitQuietly(releaseFirst);
+            } else {
+                batchDeadlines.add(RequestDeadline.get());
+            }
+            return Collections.emptyMap();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // первый вызов выполняется сразу и держит пакет, следующие собираются в новый пакет
+            Future<?> first = executor.submit(() -> batcher.load(1L, loader));
+            firstStarted.await();
+            Future<?> impatient = executor.submit(() -> {
+                RequestDeadline.set(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+                try {
+                    return batcher.load(2L, loader);
+                } finally {
+                    RequestDeadline.clear();
+                }
+            });
+            Future<?> patient = executor.submit(() -> batcher.load(3L, loader));
+            Thread.sleep(50);
+            releaseFirst.countDown();
+            first.get();
+            impatient.get();
+            patient.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("Все вызовы должны попасть в один пакет", 1, batchDeadlines.size());
+        assertEquals("Пакет с вызовом без срока должен выполняться без срока", null, batchDeadlines.get(0));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Race;
+import org.junit.Test;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetRankTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getRankByIdZeroTest() throws Exception {
+        mockMvc.perform(get("/rest/players/0/rank"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test2
+    @Test
+    public void getRankByIdNotExistTest() throws Exception {
+        mockMvc.perform(get("/rest/players/410/rank"))
+                .andExpect(status().isNotFound());
+    }
+
+    //test3
+    @Test
+    public void getRankTest() throws Exception {
+        PlayerInfoTest player = testsHelper.getPlayerInfosById(14);
+        List<PlayerInfoTest> all = testsHelper.getAllPlayers();
+
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/14/rank"))
+                .andExpect(status().isOk());
+        JsonNode actual = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+
+        long better = all.stream().filter(p -> p.experience > player.experience).count();
+        long betterInRace = testsHelper.getPlayerInfosByRace(player.race, all).stream()
+                .filter(p -> p.experience > player.experience).count();
+        long lower = all.stream().filter(p -> p.experience < player.experience).count();
+
+        assertEquals("Неправильное место в общем рейтинге.", better + 1, actual.get("rank").asLong());
+        assertEquals("Неправильное количество игроков в рейтинге.", all.size(), actual.get("total").asInt());
+        assertEquals("Неправильное место среди расы.", betterInRace + 1, actual.get("raceRank").asLong());
+        assertEquals("Неправильный перцентиль.", 100.0 * lower / all.size(), actual.get("percentile").asDouble());
+    }
+
+    //test4
+    @Test
+    public void getTopByRaceTest() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/top?race=ELF&count=3"))
+                .andExpect(status().isOk());
+
+        List<PlayerInfoTest> actual = mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(),
+                new TypeReference<List<PlayerInfoTest>>() {
+                });
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByRace(Race.ELF, testsHelper.getAllPlayers()).stream()
+                .sorted(Comparator.comparing((PlayerInfoTest p) -> -p.experience).thenComparing(p -> p.id))
+                .limit(3)
+                .collect(Collectors.toList());
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/top.", expected, actual);
+    }
+
+    //test5
+    @Test
+    public void getRankAfterDeleteTest() throws Exception {
+        mockMvc.perform(delete("/rest/players/14"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/rest/players/14/rank"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,163 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetStatsTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getStatsTest() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/stats"))
+                .andExpect(status().isOk());
+        JsonNode actual = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+
+        assertEquals("Неправильное общее количество игроков.",
+                testsHelper.getAllPlayers().size(), actual.get("total").asInt());
+        assertEquals("Неправильное количество забаненных игроков.",
+                testsHelper.getPlayerInfosByBaned(true, testsHelper.getAllPlayers()).size(), actual.get("banned").asInt());
+        for (Race race : Race.values()) {
+            assertEquals("Неправильное количество игроков расы " + race,
+                    testsHelper.getPlayerInfosByRace(race, testsHelper.getAllPlayers()).size(),
+                    actual.get("byRace").get(race.name()).asInt());
+        }
+        for (Profession profession : Profession.values()) {
+            assertEquals("Неправильное количество игроков профессии " + profession,
+                    testsHelper.getPlayerInfosByProfession(profession, testsHelper.getAllPlayers()).size(),
+                    actual.get("byProfession").get(profession.name()).asInt());
+        }
+    }
+
+    //test2
+    @Test
+    public void getCountWithFiltersRaceMinLevelMaxLevel() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/count?race=ELF&minLevel=20&maxLevel=50")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        int actual = Integer.parseInt(resultActions.andReturn().getResponse().getContentAsString());
+        int expected = testsHelper.getPlayerInfosByRace(Race.ELF,
+                testsHelper.getPlayerInfosByMinLevel(20,
+                        testsHelper.getPlayerInfosByMaxLevel(50,
+                                testsHelper.getAllPlayers()))).size();
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/count с параметрами race, minLevel и maxLevel.", expected, actual);
+    }
+
+    //test3
+    @Test
+    public void getCountAfterDeleteTest() throws Exception {
+        mockMvc.perform(delete("/rest/players/1"))
+                .andExpect(status().isOk());
+
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/count"))
+                .andExpect(status().isOk());
+
+        int actual = Integer.parseInt(resultActions.andReturn().getResponse().getContentAsString());
+        assertEquals("Количество игроков не изменилось после удаления.", testsHelper.getAllPlayers().size() - 1, actual);
+    }
+
+    //test4
+    @Test
+    public void getCoalescingStatsTest() throws Exception {
+        JsonNode before = mapper.readTree(mockMvc.perform(get("/rest/players/stats/coalescing"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+        mockMvc.perform(get("/rest/players/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/1")).andExpect(status().isOk());
+
+        JsonNode after = mapper.readTree(mockMvc.perform(get("/rest/players/stats/coalescing"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals("Последовательные чтения не должны объединяться.",
+                before.get("findExecutions").asLong() + 2, after.get("findExecutions").asLong());
+    }
+
+    //test5
+    @Test
+    public void getBulkheadStatsTest() throws Exception {
+        mockMvc.perform(get("/rest/players/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/0")).andExpect(status().isBadRequest());
+
+        JsonNode actual = mapper.readTree(mockMvc.perform(get("/rest/players/stats/bulkheads"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        for (String workload : new String[]{"SCAN", "POINT", "WRITE"}) {
+            assertEquals("Нет статистики пула " + workload, true, actual.has(workload));
+        }
+        assertEquals("Чтения по id должны выполняться в своем пуле.", true,
+                actual.get("POINT").get("completed").asLong() >= 2);
+    }
+
+    //test6
+    @Test
+    public void getIdFilterStatsTest() throws Exception {
+        JsonNode before = mapper.readTree(mockMvc.perform(get("/rest/players/stats/id-filter"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+        mockMvc.perform(get("/rest/players/100000")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/rest/players/100001")).andExpect(status().isNotFound());
+
+        JsonNode after = mapper.readTree(mockMvc.perform(get("/rest/players/stats/id-filter"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals("Фильтр должен знать всех игроков.", testsHelper.getAllPlayers().size(), after.get("ids").asInt());
+        assertEquals("Несуществующие id должны отсекаться фильтром.",
+                before.get("definiteMisses").asLong() + 2, after.get("definiteMisses").asLong());
+    }
+
+    //test7
+    @Test
+    public void getAnalyticsTest() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/stats/analytics?race=HUMAN&q=0,0.5,1"))
+                .andExpect(status().isOk());
+        JsonNode actual = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+
+        List<PlayerInfoTest> humans = testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers());
+        List<Integer> experience = humans.stream().map(player -> player.experience).sorted().collect(Collectors.toList());
+        assertEquals("Неправильное количество игроков в срезе", humans.size(), actual.get("players").asInt());
+        assertEquals("Неправильный минимум опыта", experience.get(0), actual.get("experience").get("0.0").asInt());
+        assertEquals("Неправильная медиана опыта", experience.get((humans.size() + 1) / 2 - 1),
+                actual.get("experience").get("0.5").asInt());
+        assertEquals("Неправильный максимум опыта", experience.get(humans.size() - 1),
+                actual.get("experience").get("1.0").asInt());
+
+        Set<String> words = new HashSet<>();
+        humans.forEach(player -> {
+            for (String word : player.title.toLowerCase(new Locale("ru", "RU")).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        });
+        long estimate = actual.get("distinctTitleWords").asLong();
+        assertTrue("Оценка количества слов в титулах слишком далека от точного значения " + words.size() + ": " + estimate,
+                Math.abs(estimate - words.size()) <= Math.max(1, words.size() / 20));
+    }
+
+    //test8
+    @Test
+    public void getAnalyticsWrongQuantileTest() throws Exception {
+        mockMvc.perform(get("/rest/players/stats/analytics?q=1.5"))
+                .andExpect(status().isBadRequest());
+    }
+}
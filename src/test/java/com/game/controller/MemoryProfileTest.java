@@ -0,0 +1,68 @@
+package com.game.controller;
+
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Тесты контроллера на хранилище вне кучи (профиль memory): AbstractTest перед каждым тестом
+ * заполняет его из таблицы, пересозданной test.sql.
+ *
+ * Не повторяются CircuitBreakerTest и WriteBehindUpdateTest - они проверяют обращения к таблице в БД,
+ * которой в профиле memory игроки не хранятся.
+ */
+@RunWith(Enclosed.class)
+public class MemoryProfileTest {
+
+    @ActiveProfiles("memory")
+    public static class GetAll extends GetAllTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class GetCount extends GetCountTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class GetPlayer extends GetPlayerTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class CreatePlayer extends CreatePlayerTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class UpdatePlayer extends UpdatePlayerTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class DeletePlayer extends DeletePlayerTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class AddExperience extends AddExperienceTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class GetRank extends GetRankTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class GetStats extends GetStatsTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class GetHistory extends GetHistoryTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class GetChanges extends GetChangesTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class Admission extends AdmissionTest {
+    }
+
+    @ActiveProfiles("memory")
+    public static class Deadline extends DeadlineTest {
+    }
+}
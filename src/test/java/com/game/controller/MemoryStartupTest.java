@@ -0,0 +1,161 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.config.AppConfig;
+import com.game.config.MyWebAppInit;
+import com.game.config.WebConfig;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import com.game.snapshot.PlayerSnapshotFile;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Старт профиля memory без AbstractTest: хранилище вне кучи должно заполниться само при старте контекста.
+ * Таблица player в этом контексте пустая, поэтому все игроки могут прийти только из снапшота.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles({"dev", "memory"})
+@ContextConfiguration(classes = {AppConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@TestPropertySource(properties = "player.snapshot.file=target/memory-startup-test/players.snapshot")
+public class MemoryStartupTest {
+
+    private static final Path FILE = Paths.get("target/memory-startup-test/players.snapshot");
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // снапшот пишется до создания контекста - его читает PlayerService.warmUp
+    @BeforeClass
+    public static void writeSnapshot() throws IOException {
+        Files.createDirectories(FILE.getParent());
+        List<Player> players = new ArrayList<>();
+        players.add(player(3L, "Первый", Race.ELF, 1000));
+        players.add(player(7L, "Второй", Race.ORC, 2000));
+        players.add(player(12L, "Третий", Race.HUMAN, 3000));
+        PlayerSnapshotFile.write(FILE, System.currentTimeMillis(), players, 16);
+    }
+
+    @AfterClass
+    public static void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(FILE);
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .addFilter(((request, response, chain) -> {
+                    response.setCharacterEncoding("UTF-8");
+                    chain.doFilter(request, response);
+                }))
+                .build();
+    }
+
+    //test1
+    @Test
+    public void storeFilledFromSnapshotTest() throws Exception {
+        String count = mockMvc.perform(get("/rest/players/count"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Хранилище вне кучи не заполнено из снапшота при старте.", "3", count);
+
+        JsonNode player = mapper.readTree(mockMvc.perform(get("/rest/players/7"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals("Игрок из снапшота прочитан неправильно.", "Второй", player.get("name").asText());
+    }
+
+    //test2
+    @Test
+    public void newPlayerIdAfterSnapshotTest() throws Exception {
+        JsonNode created = mapper.readTree(mockMvc.perform(post("/rest/players")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Новый\",\"title\":\"Титул\",\"race\":\"DWARF\",\"profession\":\"WARRIOR\"," +
+                        "\"birthday\":1000000000000,\"banned\":false,\"experience\":100}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        long id = created.get("id").asLong();
+        assertEquals("Новый игрок должен получить id больше загруженных из снапшота.", true, id > 12);
+        mockMvc.perform(delete("/rest/players/" + id))
+                .andExpect(status().isOk());
+    }
+
+    //test3
+    @Test
+    public void rollbackUndoesStoreWritesTest() {
+        PlayerRepository repository = context.getBean(PlayerRepository.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        transaction.execute(status -> {
+            repository.save(player(null, "Откат", Race.GIANT, 500));
+            Player changed = repository.findById(3L).orElseThrow(AssertionError::new);
+            changed.setName("Изменен");
+            repository.save(changed);
+            repository.deleteById(12L);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals("Откат транзакции должен вернуть хранилище к прежнему состоянию.", 3L, repository.count());
+        assertEquals("Изменение игрока не откатилось.", "Первый",
+                repository.findById(3L).orElseThrow(AssertionError::new).getName());
+        assertEquals("Удаление игрока не откатилось.", "Третий",
+                repository.findById(12L).orElseThrow(AssertionError::new).getName());
+    }
+
+    private static Player player(Long id, String name, Race race, int experience) {
+        Player player = new Player();
+        player.setId(id);
+        player.setName(name);
+        player.setTitle("Титул");
+        player.setRace(race);
+        player.setProfession(Profession.WARRIOR);
+        player.setBirthday(new Date(1000000000000L));
+        player.setBanned(false);
+        player.setExperience(experience);
+        player.setLevel(3);
+        player.setUntilNextLevel(100);
+        return player;
+    }
+}
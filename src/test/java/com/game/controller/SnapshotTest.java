@@ -0,0 +1,117 @@
+package com.game.controller;
+
+import com.game.entity.Player;
+import com.game.index.PlayerOrderIndex;
+import com.game.repository.PlayerRepository;
+import com.game.snapshot.PlayerSnapshotFile;
+import com.game.snapshot.PlayerSnapshotService;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SnapshotTest extends AbstractTest {
+
+    private static final Path FILE = Paths.get("target/snapshot-test/players.snapshot");
+
+    @After
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(FILE);
+    }
+
+    //test1
+    @Test
+    public void snapshotRoundTripWithCatchUpTest() throws Exception {
+        PlayerSnapshotService snapshots = writeSnapshot();
+
+        mockMvc.perform(post("/rest/players/14")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Из догрузки\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/rest/players/15"))
+                .andExpect(status().isOk());
+
+        Map<Long, Player> loaded = byId(snapshots.loadWithCatchUp()
+                .orElseThrow(() -> new AssertionError("Снапшот не прочитан.")));
+        Map<Long, Player> expected = byId(context.getBean(PlayerRepository.class).findAll());
+
+        assertEquals("Неправильное количество игроков после догрузки.", expected.size(), loaded.size());
+        assertEquals("Удаленный игрок остался в состоянии.", false, loaded.containsKey(15L));
+        assertEquals("Изменение после снапшота не догружено.", "Из догрузки", loaded.get(14L).getName());
+        for (Player player : expected.values()) {
+            assertEquals("Игрок " + player.getId() + " прочитан из снапшота неправильно.",
+                    fields(player), fields(loaded.get(player.getId())));
+        }
+        snapshots.destroy();
+    }
+
+    //test2
+    @Test
+    public void corruptSnapshotFallsBackTest() throws Exception {
+        PlayerSnapshotService snapshots = writeSnapshot();
+
+        // заголовок с верной контрольной суммой, но отрицательным числом блоков
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(FILE));
+        file.putInt(16, -1);
+        CRC32 crc = new CRC32();
+        crc.update(file.array(), 0, 24);
+        file.putInt(24, (int) crc.getValue());
+        Files.write(FILE, file.array());
+
+        assertEquals("Поврежденный снапшот должен пропускаться.", false, snapshots.loadWithCatchUp().isPresent());
+
+        Files.write(FILE, new byte[]{1, 2, 3});
+        assertEquals("Нечитаемый снапшот должен пропускаться.", false, snapshots.loadWithCatchUp().isPresent());
+        snapshots.destroy();
+    }
+
+    //test3
+    @Test
+    public void snapshotWrittenFromIndexTest() throws Exception {
+        // строка меняется в обход сервиса: индекс о ней не знает, поэтому не узнает и снапшот, если БД не читается
+        context.getBean(JdbcTemplate.class).update("UPDATE player SET name = 'В обход' WHERE id = 14");
+
+        PlayerSnapshotService snapshots = writeSnapshot();
+        Map<Long, Player> written = byId(PlayerSnapshotFile.read(FILE).getPlayers());
+        Map<Long, Player> indexed = byId(context.getBean(PlayerOrderIndex.class).players());
+
+        assertEquals("Снапшот должен писаться из индекса, а не из БД.", false, "В обход".equals(written.get(14L).getName()));
+        assertEquals("В снапшоте должны быть все игроки индекса.", indexed.keySet(), written.keySet());
+        snapshots.destroy();
+    }
+
+    private PlayerSnapshotService writeSnapshot() throws IOException {
+        Files.createDirectories(FILE.getParent());
+        PlayerSnapshotService snapshots = new PlayerSnapshotService(context.getBean(PlayerRepository.class),
+                context.getBean(PlayerOrderIndex.class),
+                FILE.toString(), 3600, 60, 16);
+        snapshots.reload(Collections.emptyList());
+        snapshots.writeSnapshot();
+        return snapshots;
+    }
+
+    private static Map<Long, Player> byId(List<Player> players) {
+        Map<Long, Player> result = new HashMap<>();
+        players.forEach(player -> result.put(player.getId(), player));
+        return result;
+    }
+
+    private static List<Object> fields(Player player) {
+        return Arrays.asList(player.getId(), player.getName(), player.getTitle(), player.getRace(),
+                player.getProfession(), player.getBirthday().getTime(), player.getBanned(),
+                player.getExperience(), player.getLevel(), player.getUntilNextLevel());
+    }
+}
@@ -181,4 +181,23 @@ public class UpdatePlayerTest extends AbstractTest {
 
         assertEquals("При запросе POST /rest/players/{id} корабль должен обновляться и рейтинг пересчитываться", expected, actual);
     }
-}
\ No newline at end of file
+
+    //test12
+    @Test
+    public void updatePlayerPersistedTest() throws Exception {
+        PlayerInfoTest playerInfoTest = testsHelper.getPlayerInfosById(14);
+
+        mockMvc.perform(post("/rest/players/14")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\": \"Новый титул\", \"experience\": 2500}"))
+                .andExpect(status().isOk());
+
+        ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders.get("/rest/players/14"))
+                .andExpect(status().isOk());
+        PlayerInfoTest actual = mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(), PlayerInfoTest.class);
+
+        PlayerInfoTest expected = new PlayerInfoTest(playerInfoTest.id, playerInfoTest.name, "Новый титул", playerInfoTest.race,
+                playerInfoTest.profession, playerInfoTest.birthday, playerInfoTest.banned, 2500, 6, 300);
+        assertEquals("При запросе POST /rest/players/{id} изменение должно сохраняться в БД вместе с пересчитанным уровнем", expected, actual);
+    }
+}
@@ -0,0 +1,140 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.changelog.PlayerChangelog;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.experience.ExperienceFlusher;
+import com.game.repository.PlayerRepository;
+import com.game.writebehind.PlayerWriteBehind;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {
+        "player.write-behind.dir=target/write-behind-test",
+        "player.write-behind.flush-interval-ms=3600000"})
+public class WriteBehindUpdateTest extends AbstractTest {
+
+    private static final String DIR = "target/write-behind-test";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void updateVisibleBeforeFlushTest() throws Exception {
+        mockMvc.perform(post("/rest/players/14")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Отложенный\",\"experience\":1000}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Изменение не должно сразу попадать в БД.", false, "Отложенный".equals(nameInDatabase(14)));
+
+        PlayerInfoTest actual = getPlayer(14);
+        assertEquals("Чтение не видит подтвержденное изменение.", "Отложенный", actual.name);
+        assertEquals("Уровень не пересчитан.", 4, actual.level);
+
+        ResultActions resultActions = mockMvc.perform(get("/rest/players").param("name", "Отложен"))
+                .andExpect(status().isOk());
+        List<PlayerInfoTest> found = mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(),
+                mapper.getTypeFactory().constructCollectionType(List.class, PlayerInfoTest.class));
+        assertEquals("Фильтр не видит подтвержденное изменение.", 1, found.size());
+
+        context.getBean(PlayerWriteBehind.class).flush();
+        assertEquals("После сброса изменение должно быть в БД.", "Отложенный", nameInDatabase(14));
+    }
+
+    //test2
+    @Test
+    public void updateRecoveredFromLogTest() throws Exception {
+        mockMvc.perform(post("/rest/players/15")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Из журнала\"}"))
+                .andExpect(status().isOk());
+
+        // новый экземпляр на том же каталоге - как узел после падения до сброса
+        PlayerWriteBehind recovered = new PlayerWriteBehind(context.getBean(PlayerRepository.class),
+                context.getBean(PlayerChangelog.class), context.getBean(PlatformTransactionManager.class),
+                DIR, 3600000, 1000);
+        recovered.flush();
+        recovered.destroy();
+
+        assertEquals("Изменение не восстановлено из журнала.", "Из журнала",
+                context.getBean(JdbcTemplate.class).queryForObject("SELECT title FROM player WHERE id = 15", String.class));
+        context.getBean(PlayerWriteBehind.class).flush();
+    }
+
+    //test3
+    @Test
+    public void experienceAddedAfterUpdateNotLostTest() throws Exception {
+        mockMvc.perform(post("/rest/players/16")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\":1000}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/rest/players/16/experience").param("delta", "5"))
+                .andExpect(status().isAccepted());
+
+        context.getBean(ExperienceFlusher.class).flush();
+        context.getBean(PlayerWriteBehind.class).flush();
+
+        assertEquals("Начисление опыта затерто отложенным изменением.", 1005,
+                context.getBean(JdbcTemplate.class).queryForObject("SELECT experience FROM player WHERE id = 16", Integer.class));
+    }
+
+    //test4
+    @Test
+    public void filtersSeePendingUpdateTest() throws Exception {
+        TestsHelper helper = new TestsHelper();
+        int experience = helper.getPlayerInfosById(17).experience;
+        int stillMatching = helper.getPlayerInfosByMinExperience(experience, helper.getAllPlayers()).size() - 1;
+        int nowMatching = helper.getPlayerInfosByMaxExperience(1, helper.getAllPlayers()).size() + 1;
+
+        mockMvc.perform(post("/rest/players/17")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\":1}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Подсчет должен учитывать, что игрок больше не подходит под фильтр.",
+                String.valueOf(stillMatching), count("minExperience", experience));
+        assertEquals("Подсчет должен учитывать, что игрок стал подходить под фильтр.",
+                String.valueOf(nowMatching), count("maxExperience", 1));
+
+        ResultActions resultActions = mockMvc.perform(get("/rest/players")
+                .param("minExperience", String.valueOf(experience))
+                .param("pageSize", "100"))
+                .andExpect(status().isOk());
+        List<PlayerInfoTest> found = mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(),
+                mapper.getTypeFactory().constructCollectionType(List.class, PlayerInfoTest.class));
+        assertEquals("Список не видит подтвержденное изменение.", stillMatching, found.size());
+        assertEquals("Игрок с незаписанным изменением попал в список по старой строке.", false,
+                found.stream().anyMatch(player -> player.id == 17));
+
+        context.getBean(PlayerWriteBehind.class).flush();
+    }
+
+    private String count(String filter, int value) throws Exception {
+        return mockMvc.perform(get("/rest/players/count").param(filter, String.valueOf(value)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private String nameInDatabase(long id) {
+        return context.getBean(JdbcTemplate.class).queryForObject("SELECT name FROM player WHERE id = ?", String.class, id);
+    }
+
+    private PlayerInfoTest getPlayer(int id) throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk());
+        return mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(), PlayerInfoTest.class);
+    }
+}
@@ -0,0 +1,93 @@
+package com.game.filter;
+
+import com.game.deadline.RequestDeadline;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.exceptions.DeadlineExceededException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.fail;
+
+// параллельный просмотр сравнивается с последовательным на списке больше PARALLEL_THRESHOLD,
+// число кусков задается явно - иначе на машине с одним ядром просмотр всегда последовательный
+public class PlayerFilterPlanTest {
+
+    private static final int CHUNKS = 16;
+
+    private final List<Player> players = players(PlayerFilterPlan.PARALLEL_THRESHOLD + 1000);
+
+    @After
+    public void clearDeadline() {
+        RequestDeadline.clear();
+    }
+
+    //test1
+    @Test
+    public void parallelMatchesSequentialTest() {
+        List<PlayerFilter> filters = new ArrayList<>();
+        filters.add(new PlayerFilter(null, null, null, null, null, null, null, null, null, null, null));
+        filters.add(new PlayerFilter("a", null, Race.ELF, null, null, null, null, null, null, null, null));
+        filters.add(new PlayerFilter(null, "x", null, Profession.WARRIOR, null, null, false, 1000, 500000, null, null));
+        filters.add(new PlayerFilter(null, null, null, null, 0L, 1000000000000L, null, null, null, 3, 20));
+
+        for (PlayerFilter filter : filters) {
+            PlayerFilterPlan plan = PlayerFilterPlan.compile(filter);
+            List<Player> sequential = plan.filter(players, 1);
+            assertEquals("Параллельный просмотр должен вернуть тех же игроков в том же порядке.",
+                    sequential, plan.filter(players, CHUNKS));
+            assertEquals("Параллельный подсчет не совпадает с последовательным.",
+                    sequential.size(), plan.count(players, CHUNKS));
+        }
+    }
+
+    //test2
+    @Test
+    public void parallelChecksDeadlineTest() {
+        PlayerFilterPlan plan = PlayerFilterPlan.compile(
+                new PlayerFilter(null, null, Race.ELF, null, null, null, null, null, null, null, null));
+        Long expired = System.nanoTime() - 1;
+        RequestDeadline.set(expired);
+
+        try {
+            plan.filter(players, CHUNKS);
+            fail("Просмотр с истекшим сроком запроса должен прерываться.");
+        } catch (DeadlineExceededException e) {
+            // ожидаемо
+        }
+        try {
+            plan.count(players, CHUNKS);
+            fail("Подсчет с истекшим сроком запроса должен прерываться.");
+        } catch (DeadlineExceededException e) {
+            // ожидаемо
+        }
+        assertEquals("Срок запроса вызывающего потока должен сохраниться.", expired, RequestDeadline.get());
+    }
+
+    private static List<Player> players(int count) {
+        Random random = new Random(42);
+        String letters = "abcxyz";
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Player player = new Player();
+            player.setId((long) i + 1);
+            player.setName("n" + letters.charAt(random.nextInt(letters.length())) + i);
+            player.setTitle("t" + letters.charAt(random.nextInt(letters.length())));
+            player.setRace(Race.values()[random.nextInt(Race.values().length)]);
+            player.setProfession(Profession.values()[random.nextInt(Profession.values().length)]);
+            player.setBirthday(new Date(random.nextInt(2000) * 1000000000L));
+            player.setBanned(random.nextBoolean());
+            player.setExperience(random.nextInt(1000000));
+            player.setLevel(random.nextInt(40));
+            players.add(player);
+        }
+        return players;
+    }
+}
@@ -0,0 +1,67 @@
+package com.game.index;
+
+import com.game.entity.Player;
+import com.game.repository.PlayerRepository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class PlayerIdFilterTest {
+
+    // id в таблице, включая созданные другими узлами
+    private final List<Long> ids = new ArrayList<>(Arrays.asList(1L, 2L));
+    private PlayerIdFilter filter;
+
+    @After
+    public void shutdown() {
+        filter.destroy();
+    }
+
+    //test1
+    @Test
+    public void scheduledRebuildSeesOtherNodeInsertsTest() {
+        filter = new PlayerIdFilter(repository(), 0.01, 3600, 3600);
+        filter.reload(players(ids));
+        ids.add(3L);
+
+        assertEquals("До перестройки фильтр не знает об игроке другого узла.", false, filter.mightContain(3L));
+        filter.rebuildIfIdle();
+        assertEquals("Плановая перестройка должна загрузить id из БД.", true, filter.mightContain(3L));
+    }
+
+    //test2
+    @Test
+    public void expiredFilterFallsThroughTest() throws Exception {
+        filter = new PlayerIdFilter(repository(), 0.01, 3600, 0);
+        filter.reload(players(ids));
+        Thread.sleep(1);
+
+        assertEquals("Устаревший фильтр не должен отвечать \"точно нет\".", true, filter.mightContain(3L));
+    }
+
+    private PlayerRepository repository() {
+        return (PlayerRepository) Proxy.newProxyInstance(PlayerRepository.class.getClassLoader(),
+                new Class<?>[]{PlayerRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAllIds")) {
+                        return new ArrayList<>(ids);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static List<Player> players(List<Long> ids) {
+        List<Player> players = new ArrayList<>();
+        for (Long id : ids) {
+            Player player = new Player();
+            player.setId(id);
+            players.add(player);
+        }
+        return players;
+    }
+}
@@ -0,0 +1,78 @@
+package com.game.index;
+
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.filter.PlayerFilter;
+import com.game.filter.PlayerFilterPlan;
+import com.game.service.PlayerPageSelector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class PlayerOrderIndexTest {
+
+    private static final int MAX_FILTERED_OFFSET = 6;
+
+    private final List<Player> players = players(40);
+    private final PlayerOrderIndex index = index(players);
+
+    //test1
+    @Test
+    public void filteredPageWithinOffsetTest() {
+        PlayerFilter filter = new PlayerFilter(null, null, Race.ELF, null, null, null, null, null, null, null, null);
+        List<Player> elves = PlayerFilterPlan.compile(filter).filter(players);
+
+        for (PlayerOrder order : PlayerOrder.values()) {
+            assertEquals("Страница индекса не совпадает с отбором из списка для порядка " + order + ".",
+                    PlayerPageSelector.page(elves, order, 2, 3), index.page(filter, order, 2, 3));
+        }
+    }
+
+    //test2
+    @Test
+    public void filteredPageBeyondOffsetFallsBackTest() {
+        PlayerFilter filter = new PlayerFilter(null, null, Race.ELF, null, null, null, null, null, null, null, null);
+
+        assertEquals("Отфильтрованная страница дальше max-filtered-offset не должна строиться обходом индекса.",
+                null, index.page(filter, PlayerOrder.NAME, 3, 3));
+    }
+
+    //test3
+    @Test
+    public void unfilteredPageBeyondOffsetTest() {
+        PlayerFilter filter = new PlayerFilter(null, null, null, null, null, null, null, null, null, null, null);
+
+        assertEquals("Страница без фильтров берется из индекса на любом смещении.",
+                PlayerPageSelector.page(players, PlayerOrder.LEVEL, 5, 4), index.page(filter, PlayerOrder.LEVEL, 5, 4));
+    }
+
+    private static PlayerOrderIndex index(List<Player> players) {
+        PlayerOrderIndex index = new PlayerOrderIndex(true, MAX_FILTERED_OFFSET);
+        index.reload(players);
+        return index;
+    }
+
+    private static List<Player> players(int count) {
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Player player = new Player();
+            player.setId((long) i + 1);
+            player.setName("Игрок" + (i * 7 % count));
+            player.setTitle("t" + i);
+            player.setRace(Race.values()[i % Race.values().length]);
+            player.setProfession(Profession.values()[i % Profession.values().length]);
+            player.setBirthday(new Date(1000000000000L + i * 86400000L));
+            player.setBanned(i % 3 == 0);
+            player.setExperience(i * 1000 % 7919);
+            player.setLevel(i % 9);
+            players.add(player);
+        }
+        return players;
+    }
+}
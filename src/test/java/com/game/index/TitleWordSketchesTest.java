@@ -0,0 +1,88 @@
+package com.game.index;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class TitleWordSketchesTest {
+
+    private final AtomicInteger rebuilds = new AtomicInteger();
+    private final List<Player> players = new ArrayList<>(Arrays.asList(
+            player(1L, "Гроза лесов", 100), player(2L, "Тень гор", 200)));
+    private final TitleWordSketches sketches = new TitleWordSketches(repository(), 12, 3600);
+
+    @After
+    public void shutdown() {
+        sketches.destroy();
+    }
+
+    //test1
+    @Test
+    public void experienceOnlySaveKeepsSketchesTest() {
+        sketches.reload(players);
+        sketches.playerSaved(player(1L, "Гроза лесов", 5000));
+
+        sketches.rebuildIfStale();
+        assertEquals("Изменение только опыта не должно требовать перестройки скетчей.", 0, rebuilds.get());
+    }
+
+    //test2
+    @Test
+    public void titleChangeMarksStaleTest() {
+        sketches.reload(players);
+        long before = sketches.estimate(null, null);
+        Player renamed = player(1L, "Гроза морей", 100);
+        players.set(0, renamed);
+        sketches.playerSaved(renamed);
+
+        assertEquals("Слова нового титула должны учитываться сразу.", before + 1, sketches.estimate(null, null));
+        sketches.rebuildIfStale();
+        assertEquals("Смена титула должна запускать перестройку скетчей.", 1, rebuilds.get());
+        assertEquals("После перестройки старый титул не должен учитываться.", before, sketches.estimate(null, null));
+    }
+
+    //test3
+    @Test
+    public void deleteMarksStaleTest() {
+        sketches.reload(players);
+        players.remove(1);
+        sketches.playerDeleted(2L);
+
+        sketches.rebuildIfStale();
+        assertEquals("Удаление игрока должно запускать перестройку скетчей.", 1, rebuilds.get());
+    }
+
+    // репозиторий, который отдает текущий список игроков и считает полные чтения
+    private PlayerRepository repository() {
+        return (PlayerRepository) Proxy.newProxyInstance(PlayerRepository.class.getClassLoader(),
+                new Class<?>[]{PlayerRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAllForRead") && method.getParameterCount() == 0) {
+                        rebuilds.incrementAndGet();
+                        return new ArrayList<>(players);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Player player(Long id, String title, int experience) {
+        Player player = new Player();
+        player.setId(id);
+        player.setName("Игрок" + id);
+        player.setTitle(title);
+        player.setRace(Race.ELF);
+        player.setProfession(Profession.WARRIOR);
+        player.setExperience(experience);
+        return player;
+    }
+}
@@ -1,3 +1,4 @@
+-- схема таблицы player соответствует последней миграции из src/main/resources/db/migration
 DROP TABLE IF EXISTS player;
 
 CREATE TABLE player
@@ -12,9 +13,17 @@ CREATE TABLE player
     experience     INT(10)     NULL,
     level          INT(3)      NULL,
     untilNextLevel INT(10)     NULL,
+    updated_at     TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     PRIMARY KEY (id)
 );
 
+-- индексы должны совпадать с миграциями из src/main/resources/db/migration
+CREATE INDEX idx_player_filter ON player (race, profession, banned, level, experience, birthday);
+CREATE INDEX idx_player_experience ON player (experience);
+CREATE INDEX idx_player_level ON player (level);
+CREATE INDEX idx_player_birthday ON player (birthday);
+CREATE INDEX idx_player_updated_at ON player (updated_at);
+
 INSERT INTO player(name, title, race, profession, birthday, banned, experience, level, untilNextLevel)
 VALUES ('Ниус', 'Приходящий Без Шума', 'HOBBIT', 'ROGUE', '2010-10-12', false, 58347, 33, 1153)
      , ('Никрашш', 'НайтВульф', 'ORC', 'WARLOCK', '2010-02-14', false, 174403, 58, 2597)